@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate.bench;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import ru.yandex.practicum.filmorate.cache.FilmVersions;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.dal.FilmRepository;
+import ru.yandex.practicum.filmorate.dal.GenreRepository;
+import ru.yandex.practicum.filmorate.dal.MpaRepository;
+import ru.yandex.practicum.filmorate.dal.QueryMetrics;
+import ru.yandex.practicum.filmorate.dal.UserRepository;
+import ru.yandex.practicum.filmorate.dal.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.MpaRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.UserRowMapper;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * H2 в памяти со схемой приложения, заполненная воспроизводимыми данными: size пользователей и фильмов,
+ * у каждого пользователя LIKES_PER_USER лайков (популярность фильмов сильно неравномерная)
+ * и FRIENDS_PER_USER друзей. Репозитории собираются вручную, без контекста Spring.
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+    static final int LIKES_PER_USER = 5;
+    static final int FRIENDS_PER_USER = 10;
+
+    private static final int SEED_BATCH_SIZE = 1000;
+
+    final int size;
+    final JdbcTemplate jdbc;
+    final ReferenceDataCache referenceData;
+    final FilmRepository filmRepository;
+    final UserRepository userRepository;
+
+    private final SingleConnectionDataSource dataSource;
+
+    private BenchmarkDatabase(int size) {
+        this.size = size;
+        this.dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:bench-" + size + "-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", "", true);
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        this.jdbc = new JdbcTemplate(dataSource);
+        // метрики пишутся как в приложении, чтобы их накладные расходы входили в замеры
+        QueryMetrics queryMetrics = new QueryMetrics(new SimpleMeterRegistry());
+        this.referenceData = new ReferenceDataCache(
+                new MpaRepository(jdbc, new MpaRowMapper(), queryMetrics),
+                new GenreRepository(jdbc, new GenreRowMapper(), queryMetrics),
+                new FilmVersions());
+        this.filmRepository = new FilmRepository(jdbc, new FilmRowMapper(), referenceData, queryMetrics);
+        this.userRepository = new UserRepository(jdbc, new UserRowMapper(), queryMetrics);
+    }
+
+    static BenchmarkDatabase seeded(int size) {
+        BenchmarkDatabase database = new BenchmarkDatabase(size);
+        database.seed(new Random(42));
+        database.referenceData.refresh();
+        return database;
+    }
+
+    // Только схема и справочники: бенчмарк заполняет таблицы сам через insert
+    static BenchmarkDatabase empty(int size) {
+        BenchmarkDatabase database = new BenchmarkDatabase(size);
+        database.referenceData.refresh();
+        return database;
+    }
+
+    @Override
+    public void close() {
+        jdbc.execute("SHUTDOWN");
+        dataSource.destroy();
+    }
+
+    private void seed(Random random) {
+        List<Object[]> users = new ArrayList<>();
+        List<Object[]> films = new ArrayList<>();
+        List<Object[]> filmGenres = new ArrayList<>();
+        for (int i = 1; i <= size; i++) {
+            users.add(new Object[]{"user" + i + "@bench.ru", "user" + i, "User " + i,
+                    Date.valueOf(LocalDate.of(1970, 1, 1).plusDays(random.nextInt(15000)))});
+            films.add(new Object[]{"Film " + i, "Description of film " + i,
+                    Date.valueOf(LocalDate.of(1950, 1, 1).plusDays(random.nextInt(27000))),
+                    60 + random.nextInt(120), 1 + random.nextInt(5)});
+
+            int genres = random.nextInt(3);
+            Set<Integer> genreIds = new HashSet<>();
+            while (genreIds.size() < genres) {
+                genreIds.add(1 + random.nextInt(6));
+            }
+            for (Integer genreId : genreIds) {
+                filmGenres.add(new Object[]{i, genreId});
+            }
+        }
+
+        List<Object[]> likes = new ArrayList<>();
+        List<Object[]> friendships = new ArrayList<>();
+        for (int user = 1; user <= size; user++) {
+            for (int film : distinct(random, LIKES_PER_USER, user, true)) {
+                likes.add(new Object[]{film, user});
+            }
+            for (int friend : distinct(random, FRIENDS_PER_USER, user, false)) {
+                friendships.add(new Object[]{user, friend});
+            }
+        }
+
+        insert("INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)", users);
+        insert("INSERT INTO films (name, description, release_date, duration, mpa_id) VALUES (?, ?, ?, ?, ?)", films);
+        insert("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)", filmGenres);
+        insert("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", likes);
+        insert("INSERT INTO friendship (user_id, friend_id) VALUES (?, ?)", friendships);
+        filmRepository.reconcileLikesCount();
+    }
+
+    // Лайки тяготеют к фильмам с малыми id, друзья выбираются равномерно
+    private Set<Integer> distinct(Random random, int count, int user, boolean skewed) {
+        Set<Integer> ids = new HashSet<>();
+        int wanted = Math.min(count, size - 1);
+        while (ids.size() < wanted) {
+            int id = skewed
+                    ? 1 + (int) (size * Math.pow(random.nextDouble(), 3))
+                    : 1 + random.nextInt(size);
+            if (skewed || id != user) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    void insert(String sql, List<Object[]> rows) {
+        jdbc.batchUpdate(sql, rows, SEED_BATCH_SIZE, (ps, row) -> {
+            for (int i = 0; i < row.length; i++) {
+                ps.setObject(i + 1, row[i]);
+            }
+        });
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.bench;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация Film в JSON тем же ObjectMapper, что собирает Spring Boot:
+ * один фильм (GET /films/{id}) и страница из 100 фильмов.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmJsonBenchmark {
+    private static final int PAGE_SIZE = 100;
+
+    private ObjectMapper objectMapper;
+    private Film film;
+    private List<Film> page;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        film = film(1);
+        page = new ArrayList<>();
+        for (int i = 1; i <= PAGE_SIZE; i++) {
+            page.add(film(i));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeFilm() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(film);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    private static Film film(int id) {
+        Film film = new Film();
+        film.setId(id);
+        film.setName("Film " + id);
+        film.setDescription("Description of film " + id);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1).plusDays(id));
+        film.setDuration(120);
+
+        Mpa mpa = new Mpa();
+        mpa.setId(1L);
+        mpa.setName("G");
+        film.setMpa(mpa);
+
+        for (long genreId = 1; genreId <= 2; genreId++) {
+            Genre genre = new Genre();
+            genre.setId(genreId);
+            genre.setName("Жанр " + genreId);
+            film.getGenres().add(genre);
+        }
+
+        return film;
+    }
+}
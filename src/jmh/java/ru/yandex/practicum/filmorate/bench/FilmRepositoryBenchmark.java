@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтения FilmRepository; топ популярных сравнивается в двух вариантах:
+ * SQL по likes_count и рейтинг в памяти с догрузкой фильмов по id, как в FilmService.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmRepositoryBenchmark {
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    private BenchmarkDatabase database;
+    private PopularityLeaderboard leaderboard;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.seeded(size);
+        leaderboard = new PopularityLeaderboard(database.filmRepository);
+        leaderboard.reload();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<Film> findAll() {
+        return database.filmRepository.findAll();
+    }
+
+    @Benchmark
+    public Optional<Film> findById() {
+        return database.filmRepository.findById(ThreadLocalRandom.current().nextInt(1, size + 1));
+    }
+
+    @Benchmark
+    public List<Film> findMostLikedFilmsSql() {
+        return database.filmRepository.findMostLikedFilms(10);
+    }
+
+    @Benchmark
+    public List<Film> findMostLikedFilmsLeaderboard() {
+        return database.filmRepository.findByIds(leaderboard.top(10));
+    }
+}
@@ -0,0 +1,188 @@
+package ru.yandex.practicum.filmorate.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск фильмов по словам названия и описания: LIKE '%слово%' по таблице films против
+ * инвертированного индекса в памяти. Вариант *Sql возвращает первые limit совпадений без ранжирования
+ * и останавливается, как только их набрал; *SqlRanked, как и индекс, упорядочивает совпадения
+ * (название выше описания) и поэтому проходит всю таблицу.
+ * Словарь — случайные слова из кириллических и латинских слогов с распределением Ципфа.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class FilmSearchBenchmark {
+    private static final int VOCABULARY_SIZE = 20_000;
+    private static final int LIMIT = 20;
+    private static final String[] SYLLABLES = {
+            "ка", "ро", "ми", "ль", "зве", "зд", "во", "йн", "ма", "три", "ца", "но", "чь", "до", "ро",
+            "star", "war", "ma", "trix", "lo", "rd", "ring", "al", "ien", "pre", "da", "tor", "ge", "st"
+    };
+
+    private static final String FIND_ONE_TERM =
+            "SELECT id FROM films WHERE LOWER(name) LIKE ? OR LOWER(description) LIKE ? LIMIT ?";
+    private static final String FIND_ONE_TERM_RANKED =
+            "SELECT id FROM films WHERE LOWER(name) LIKE ? OR LOWER(description) LIKE ? " +
+                    "ORDER BY CASE WHEN LOWER(name) LIKE ? THEN 0 ELSE 1 END, id LIMIT ?";
+    private static final String FIND_TWO_TERMS =
+            "SELECT id FROM films WHERE (LOWER(name) LIKE ? OR LOWER(description) LIKE ?) " +
+                    "AND (LOWER(name) LIKE ? OR LOWER(description) LIKE ?) LIMIT ?";
+
+    @Param({"1000000"})
+    private int size;
+
+    private BenchmarkDatabase database;
+    private FilmSearchIndex index;
+    private String[] vocabulary;
+    private String commonPrefix;
+    private String rareWord;
+    private String commonWord;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        vocabulary = vocabulary(random);
+        database = BenchmarkDatabase.empty(size);
+
+        List<Object[]> films = new ArrayList<>();
+        for (int i = 1; i <= size; i++) {
+            films.add(new Object[]{words(random, 2 + random.nextInt(2), 50), words(random, 8 + random.nextInt(5), 200),
+                    Date.valueOf(LocalDate.of(1950, 1, 1).plusDays(random.nextInt(27000))),
+                    60 + random.nextInt(120), 1 + random.nextInt(5)});
+            if (films.size() == 10_000) {
+                insertFilms(films);
+            }
+        }
+        insertFilms(films);
+
+        index = new FilmSearchIndex(database.filmRepository);
+        index.reload();
+
+        // частые слова — в начале словаря, редкие — в конце
+        commonWord = vocabulary[0];
+        commonPrefix = vocabulary[1].substring(0, 3);
+        rareWord = vocabulary[VOCABULARY_SIZE - 1];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<Integer> rareWordSql() {
+        return likeOne(rareWord);
+    }
+
+    @Benchmark
+    public List<Integer> rareWordSqlRanked() {
+        return likeOneRanked(rareWord);
+    }
+
+    @Benchmark
+    public List<Integer> rareWordIndex() {
+        return index.search(rareWord, LIMIT);
+    }
+
+    @Benchmark
+    public List<Integer> commonPrefixSql() {
+        return likeOne(commonPrefix);
+    }
+
+    @Benchmark
+    public List<Integer> commonPrefixSqlRanked() {
+        return likeOneRanked(commonPrefix);
+    }
+
+    @Benchmark
+    public List<Integer> commonPrefixIndex() {
+        return index.search(commonPrefix, LIMIT);
+    }
+
+    @Benchmark
+    public List<Integer> twoTermsSql() {
+        String first = "%" + commonWord + "%";
+        String second = "%" + rareWord + "%";
+        return database.jdbc.queryForList(FIND_TWO_TERMS, Integer.class, first, first, second, second, LIMIT);
+    }
+
+    @Benchmark
+    public List<Integer> twoTermsIndex() {
+        return index.search(commonWord + " " + rareWord, LIMIT);
+    }
+
+    private List<Integer> likeOne(String term) {
+        String pattern = "%" + term + "%";
+        return database.jdbc.queryForList(FIND_ONE_TERM, Integer.class, pattern, pattern, LIMIT);
+    }
+
+    private List<Integer> likeOneRanked(String term) {
+        String pattern = "%" + term + "%";
+        return database.jdbc.queryForList(FIND_ONE_TERM_RANKED, Integer.class, pattern, pattern, pattern, LIMIT);
+    }
+
+    private void insertFilms(List<Object[]> films) {
+        database.insert("INSERT INTO films (name, description, release_date, duration, mpa_id) VALUES (?, ?, ?, ?, ?)",
+                films);
+        films.clear();
+    }
+
+    // Длина обрезается до размера колонки в схеме
+    private String words(Random random, int count, int maxLength) {
+        StringJoiner text = new StringJoiner(" ");
+        for (int i = 0; i < count; i++) {
+            // Ципф: индекс слова ~ 1 / rank
+            int rank = (int) Math.floor(Math.pow(VOCABULARY_SIZE + 1.0, random.nextDouble())) - 1;
+            String word = vocabulary[Math.min(rank, VOCABULARY_SIZE - 1)];
+            text.add(i == 0 ? word.substring(0, 1).toUpperCase(Locale.ROOT) + word.substring(1) : word);
+        }
+        return text.length() > maxLength ? text.toString().substring(0, maxLength) : text.toString();
+    }
+
+    private static String[] vocabulary(Random random) {
+        String[] words = new String[VOCABULARY_SIZE];
+        Set<String> seen = new HashSet<>();
+        int filled = 0;
+        while (filled < VOCABULARY_SIZE) {
+            StringBuilder word = new StringBuilder();
+            int syllables = 2 + random.nextInt(3);
+            boolean cyrillic = random.nextBoolean();
+            for (int i = 0; i < syllables; i++) {
+                int from = cyrillic ? 0 : 15;
+                word.append(SYLLABLES[from + random.nextInt(cyrillic ? 15 : SYLLABLES.length - 15)]);
+            }
+            if (seen.add(word.toString())) {
+                words[filled++] = word.toString();
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Друзья и общие друзья: прежние SQL-запросы UserRepository против графа дружбы в памяти
+ * с загрузкой пользователей по id, как в UserService.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FriendsBenchmark {
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    private BenchmarkDatabase database;
+    private FriendGraph friendGraph;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.seeded(size);
+        friendGraph = new FriendGraph(database.userRepository);
+        friendGraph.reload();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Set<User> friendsSql() {
+        return database.userRepository.getFriendsToUser(randomUser());
+    }
+
+    @Benchmark
+    public List<User> friendsGraph() {
+        return database.userRepository.findByIds(friendGraph.friendsOf(randomUser()));
+    }
+
+    @Benchmark
+    public Set<User> commonFriendsSql() {
+        return database.userRepository.getFriendsCommonOtherFriend(randomUser(), randomUser());
+    }
+
+    @Benchmark
+    public List<User> commonFriendsGraph() {
+        return database.userRepository.findByIds(friendGraph.commonFriends(randomUser(), randomUser()));
+    }
+
+    private int randomUser() {
+        return ThreadLocalRandom.current().nextInt(1, size + 1);
+    }
+}
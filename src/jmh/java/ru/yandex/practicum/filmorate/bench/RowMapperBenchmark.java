@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.yandex.practicum.filmorate.dal.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.UserRowMapper;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость RowMapper на уже полученном результате из ROWS строк: результат прокручиваемый
+ * и целиком лежит в памяти, поэтому в замер не входят ни разбор SQL, ни чтение таблицы.
+ * readOnly* — обход того же результата без создания объектов, для вычитания.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMapperBenchmark {
+    private static final int ROWS = 1000;
+
+    private final FilmRowMapper filmRowMapper = new FilmRowMapper();
+    private final UserRowMapper userRowMapper = new UserRowMapper();
+
+    private BenchmarkDatabase database;
+    private ResultSet films;
+    private ResultSet users;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = BenchmarkDatabase.seeded(ROWS);
+        Connection connection = database.jdbc.getDataSource().getConnection();
+        films = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY)
+                .executeQuery("SELECT * FROM films ORDER BY id");
+        users = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY)
+                .executeQuery("SELECT * FROM users ORDER BY id");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        films.close();
+        users.close();
+        database.close();
+    }
+
+    @Benchmark
+    public void mapFilms(Blackhole blackhole) throws SQLException {
+        films.beforeFirst();
+        for (int row = 0; films.next(); row++) {
+            blackhole.consume(filmRowMapper.mapRow(films, row));
+        }
+    }
+
+    @Benchmark
+    public void mapUsers(Blackhole blackhole) throws SQLException {
+        users.beforeFirst();
+        for (int row = 0; users.next(); row++) {
+            blackhole.consume(userRowMapper.mapRow(users, row));
+        }
+    }
+
+    @Benchmark
+    public void readOnlyFilms(Blackhole blackhole) throws SQLException {
+        films.beforeFirst();
+        while (films.next()) {
+            blackhole.consume(films.getInt(1));
+        }
+    }
+
+    @Benchmark
+    public void readOnlyUsers(Blackhole blackhole) throws SQLException {
+        users.beforeFirst();
+        while (users.next()) {
+            blackhole.consume(users.getInt(1));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Готовый JSON (UTF-8) часто запрашиваемых фильмов: на попадании ответ пишется без чтения из БД
+ * и без сериализации. Запись действительна, пока версия фильма в {@link FilmVersions} не изменилась;
+ * обновление справочников меняет версии всех фильмов, и записи с прежними названиями жанров и рейтинга
+ * перестают отдаваться. Размер ограничен max-entries; при переполнении вытесняется фильм,
+ * который дольше всех не запрашивали (LRU).
+ */
+@Component
+public class FilmJsonCache {
+    private final ObjectMapper objectMapper;
+    private final FilmVersions filmVersions;
+    private final int maxEntries;
+    // порядок доступа: первым вытесняется давно не запрашивавшийся фильм; доступ под монитором entries
+    private final Map<Integer, Document> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Document> eldest) {
+            return size() > maxEntries;
+        }
+    };
+    private final Counter hits;
+    private final Counter misses;
+
+    public FilmJsonCache(ObjectMapper objectMapper, FilmVersions filmVersions, MeterRegistry registry,
+                         @Value("${filmorate.films.json-cache.max-entries:500}") int maxEntries) {
+        this.objectMapper = objectMapper;
+        this.filmVersions = filmVersions;
+        this.maxEntries = maxEntries;
+        this.hits = registry.counter("filmorate.films.json.cache", "result", "hit");
+        this.misses = registry.counter("filmorate.films.json.cache", "result", "miss");
+    }
+
+    // null, если фильма нет в кеше или он изменился после сериализации
+    public byte[] get(int filmId) {
+        Document document;
+        synchronized (entries) {
+            document = entries.get(filmId);
+        }
+        if (document == null || document.version() != filmVersions.version(filmId)) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return document.json();
+    }
+
+    // version читается до загрузки фильма из БД: если фильм успел измениться, запись сразу окажется устаревшей
+    public byte[] put(Film film, long version) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(film);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать фильм " + film.getId(), e);
+        }
+
+        synchronized (entries) {
+            entries.put(film.getId(), new Document(version, json));
+        }
+
+        return json;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private record Document(long version, byte[] json) {
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Версии фильмов для ETag: версия меняется при каждом изменении фильма, его жанров или лайков.
+ * Хранятся только версии фильмов, изменённых после старта, остальные имеют версию 0.
+ * {@link #bumpAll()} меняет версии всех фильмов сразу — после обновления справочников,
+ * названия из которых входят в фильм.
+ * В ETag входит метка запуска, поэтому после перезапуска старые ETag клиентов не совпадут.
+ */
+@Component
+public class FilmVersions {
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong clock = new AtomicLong();
+    private final Map<Integer, Long> versions = new ConcurrentHashMap<>();
+    // версия, ниже которой не опускается ни один фильм
+    private final AtomicLong floor = new AtomicLong();
+
+    public long version(int filmId) {
+        return Math.max(versions.getOrDefault(filmId, 0L), floor.get());
+    }
+
+    public void bump(int filmId) {
+        versions.put(filmId, clock.incrementAndGet());
+    }
+
+    public void bumpAll() {
+        floor.accumulateAndGet(clock.incrementAndGet(), Math::max);
+    }
+
+    public String etag(int filmId) {
+        return epoch + "-" + version(filmId);
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.GenreRepository;
+import ru.yandex.practicum.filmorate.dal.MpaRepository;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Справочники mpa и genres, загруженные в память при старте.
+ * Данные хранятся в неизменяемых массивах, индексированных по id;
+ * после изменения таблиц нужно вызвать {@link #refresh()}.
+ * Версии справочников — хеши их содержимого, они используются как ETag.
+ * Обновление меняет и версии всех фильмов: в их JSON и ETag входят названия жанров и рейтинга.
+ */
+@Slf4j
+@Component
+public class ReferenceDataCache {
+    private final MpaRepository mpaRepository;
+    private final GenreRepository genreRepository;
+    private final FilmVersions filmVersions;
+
+    private volatile Snapshot snapshot = new Snapshot(new Mpa[0], List.of(), new Genre[0], List.of(), "", "");
+
+    public ReferenceDataCache(MpaRepository mpaRepository, GenreRepository genreRepository,
+                              FilmVersions filmVersions) {
+        this.mpaRepository = mpaRepository;
+        this.genreRepository = genreRepository;
+        this.filmVersions = filmVersions;
+    }
+
+    @PostConstruct
+    public void refresh() {
+        List<Mpa> mpa = mpaRepository.findAll().stream()
+                .sorted(Comparator.comparing(Mpa::getId))
+                .toList();
+        List<Genre> genres = genreRepository.findAll().stream()
+                .sorted(Comparator.comparing(Genre::getId))
+                .toList();
+
+        Mpa[] mpaById = new Mpa[mpa.isEmpty() ? 0 : Math.toIntExact(mpa.getLast().getId()) + 1];
+        mpa.forEach(m -> mpaById[Math.toIntExact(m.getId())] = m);
+
+        Genre[] genresById = new Genre[genres.isEmpty() ? 0 : Math.toIntExact(genres.getLast().getId()) + 1];
+        genres.forEach(g -> genresById[Math.toIntExact(g.getId())] = g);
+
+        snapshot = new Snapshot(mpaById, mpa, genresById, genres, version(mpa), version(genres));
+        // после новой выборки: фильм, прочитанный с новой версией, уже содержит новые названия
+        filmVersions.bumpAll();
+        log.info("Справочники загружены: mpa = {}, genres = {}", mpa.size(), genres.size());
+    }
+
+    public List<Mpa> findAllMpa() {
+        return snapshot.mpa();
+    }
+
+    public Optional<Mpa> findMpaById(long id) {
+        Mpa[] mpaById = snapshot.mpaById();
+        return id >= 0 && id < mpaById.length ? Optional.ofNullable(mpaById[(int) id]) : Optional.empty();
+    }
+
+    public String mpaVersion() {
+        return snapshot.mpaVersion();
+    }
+
+    public String genresVersion() {
+        return snapshot.genresVersion();
+    }
+
+    public List<Genre> findAllGenres() {
+        return snapshot.genres();
+    }
+
+    public Optional<Genre> findGenreById(long id) {
+        Genre[] genresById = snapshot.genresById();
+        return id >= 0 && id < genresById.length ? Optional.ofNullable(genresById[(int) id]) : Optional.empty();
+    }
+
+    // Одинаковое содержимое даёт одинаковую версию и после перезапуска
+    private static String version(List<?> items) {
+        return Integer.toHexString(items.hashCode());
+    }
+
+    private record Snapshot(Mpa[] mpaById, List<Mpa> mpa, Genre[] genresById, List<Genre> genres,
+                            String mpaVersion, String genresVersion) {
+    }
+}
@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Объединение одинаковых одновременных загрузок. Вызов сначала читает версию данных по ключу и
+ * присоединяется к идущей загрузке, если та начата при этой версии или более новой: он получает её результат
+ * или исключение. Если версия с начала загрузки изменилась, загрузка могла не увидеть изменение, и вызов
+ * ждёт следующую — она одна на все такие вызовы и начинается, когда закончится текущая. Поэтому даже при
+ * непрерывных изменениях по ключу идёт не больше одной загрузки и ждёт не больше одной.
+ *
+ * <p>Результат не кешируется: вызов после завершения загрузки запускает новую. Присоединившиеся вызовы
+ * получают результат через share — например, копию изменяемого объекта.
+ */
+public final class SingleFlight<K, V> {
+    private final Map<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final UnaryOperator<V> share;
+    private final AtomicLong joined = new AtomicLong();
+
+    public SingleFlight() {
+        this(UnaryOperator.identity());
+    }
+
+    public SingleFlight(UnaryOperator<V> share) {
+        this.share = share;
+    }
+
+    public V load(K key, LongSupplier version, Supplier<V> loader) {
+        long seen = version.getAsLong();
+        Flight<V> own = new Flight<>(seen);
+        Choice<V> choice = new Choice<>();
+        flights.compute(key, (k, current) -> {
+            if (current == null) {
+                choice.lead(own, null);
+                return own;
+            }
+            if (current.version >= seen) {
+                choice.flight = current;
+            } else if (current.next == null) {
+                current.next = own;
+                choice.lead(own, current);
+            } else {
+                choice.flight = current.next;
+            }
+            return current;
+        });
+
+        if (!choice.leader) {
+            joined.incrementAndGet();
+            return share.apply(await(choice.flight.result));
+        }
+
+        if (choice.previous != null) {
+            // следующая загрузка начинается после текущей, с версией, прочитанной в момент начала
+            choice.previous.result.handle((value, error) -> null).join();
+            flights.compute(key, (k, current) -> {
+                own.version = version.getAsLong();
+                return own;
+            });
+        }
+        return run(key, own, loader);
+    }
+
+    // Сколько вызовов получили результат чужой загрузки
+    public long joined() {
+        return joined.get();
+    }
+
+    private V run(K key, Flight<V> flight, Supplier<V> loader) {
+        try {
+            V value = loader.get();
+            flight.result.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            // при ожидающей следующей загрузке ключ освобождает она сама, когда начнётся
+            flights.computeIfPresent(key, (k, current) -> current == flight && flight.next == null ? null : current);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Поля version и next меняются и читаются только внутри compute по ключу
+    private static final class Flight<V> {
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private long version;
+        private Flight<V> next;
+
+        Flight(long version) {
+            this.version = version;
+        }
+    }
+
+    private static final class Choice<V> {
+        private Flight<V> flight;
+        private Flight<V> previous;
+        private boolean leader;
+
+        void lead(Flight<V> own, Flight<V> previous) {
+            this.flight = own;
+            this.previous = previous;
+            this.leader = true;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничивает число одновременно обрабатываемых запросов к /films и /users размером пула соединений.
+ * Нужен только на виртуальных потоках: их число не ограничено, и без фильтра все лишние запросы
+ * ждали бы соединение внутри пула до connection-timeout. Здесь они ждут не дольше queue-timeout,
+ * после чего получают 503.
+ */
+@Slf4j
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class ConnectionPoolAdmissionFilter extends OncePerRequestFilter {
+    private final Semaphore permits;
+    private final long queueTimeoutNanos;
+    private final ObjectMapper objectMapper;
+
+    public ConnectionPoolAdmissionFilter(@Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                                         @Value("${filmorate.execution.queue-timeout:PT5S}") Duration queueTimeout,
+                                         ObjectMapper objectMapper) {
+        this.permits = new Semaphore(poolSize, true);
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        return !path.startsWith("/films") && !path.startsWith("/users");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!acquire()) {
+            log.warn("Запрос {} {} отклонён: все соединения с БД заняты", request.getMethod(), request.getRequestURI());
+            OverloadResponses.write(response, objectMapper, HttpStatus.SERVICE_UNAVAILABLE,
+                    "Сервис перегружен", "Повторите запрос позже");
+            return;
+        }
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean acquire() {
+        try {
+            return permits.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
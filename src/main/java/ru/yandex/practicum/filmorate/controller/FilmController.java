@@ -1,26 +1,64 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.PopularityBroadcaster;
 
-import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("/films")
 public class FilmController {
     public FilmService filmService;
+    private ObjectMapper objectMapper;
+    private PopularityBroadcaster popularityBroadcaster;
 
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, ObjectMapper objectMapper,
+                          PopularityBroadcaster popularityBroadcaster) {
         this.filmService = filmService;
+        this.objectMapper = objectMapper;
+        this.popularityBroadcaster = popularityBroadcaster;
     }
 
+    // По умолчанию список отдаётся постранично (?after=<id>&limit=N),
+    // вся таблица целиком — только по явному ?unpaged=true.
+    // С фильтрами (?genre=1&genre=2&mpa=3&yearFrom=1990&yearTo=1999&sort=popular) отдаётся страница
+    // с числом подходящих фильмов по жанрам, рейтингам и годам; жанры объединяются по И, рейтинги — по ИЛИ.
+    // Следующая страница — ?after=<id последнего фильма> и при sort=popular: место в рейтинге берётся по его лайкам
     @GetMapping
-    public Collection<Film> findAll() {
-        return filmService.findAll();
+    public ResponseEntity<?> findAll(@RequestParam(required = false) Integer after,
+                                     @RequestParam(required = false) Integer limit,
+                                     @RequestParam(defaultValue = "false") boolean unpaged,
+                                     @RequestParam(required = false) List<Long> genre,
+                                     @RequestParam(required = false) List<Long> mpa,
+                                     @RequestParam(required = false) Integer yearFrom,
+                                     @RequestParam(required = false) Integer yearTo,
+                                     @RequestParam(required = false) String sort) {
+        if (genre != null || mpa != null || yearFrom != null || yearTo != null || sort != null) {
+            return ResponseEntity.ok(filmService.findFaceted(genre, mpa, yearFrom, yearTo, sort, after, limit));
+        }
+        if (unpaged) {
+            return ResponseEntity.ok(filmService.findAll());
+        }
+
+        return CursorPageResponses.of(filmService.findPage(after, limit));
+    }
+
+    // Выгрузка всей таблицы в формате NDJSON без накопления списка в памяти
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> export() {
+        return NdjsonResponses.of(objectMapper, filmService::exportAll);
     }
 
     @PostMapping
@@ -28,14 +66,36 @@ public class FilmController {
         return filmService.create(film);
     }
 
+    // Элементы с ошибками не прерывают пакет: для каждого возвращается id или причина отказа
+    @PostMapping("/batch")
+    public List<BatchItemResult> createBatch(@RequestBody List<Film> films) {
+        return filmService.createBatch(films);
+    }
+
     @PutMapping
     public Film update(@Valid @RequestBody Film newFilm) {
         return filmService.update(newFilm);
     }
 
+    // Поиск по префиксам слов в названии и описании: ?q=звёздн войн&limit=20
+    @GetMapping("/search")
+    public List<Film> search(@RequestParam("q") String query, @RequestParam(required = false) Integer limit) {
+        return filmService.search(query, limit);
+    }
+
+    // Версия берётся до чтения фильма: изменение между ними даст лишний 200, но не устаревший 304
     @GetMapping("/{id}")
-    public Optional<Film> findById(@PathVariable Integer id) {
-        return filmService.findById(id);
+    public ResponseEntity<byte[]> findById(@PathVariable Integer id,
+                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                           String ifNoneMatch) {
+        String etag = filmService.etag(id);
+        if (ConditionalResponses.matches(ifNoneMatch, etag)) {
+            return ConditionalResponses.notModified(etag, CacheControl.empty());
+        }
+
+        return filmService.findJsonById(id)
+                .map(json -> ResponseEntity.ok().eTag(etag).contentType(MediaType.APPLICATION_JSON).body(json))
+                .orElseThrow(() -> new NotFoundException("Фильм с id = " + id + " не найден"));
     }
 
     @PutMapping("/{filmId}/like/{userId}")
@@ -48,8 +108,17 @@ public class FilmController {
         filmService.removeLikeTheMovie(filmId, userId);
     }
 
+    // Фильмы топа отдаются готовым JSON из кеша, без повторной сериализации
     @GetMapping("/popular")
-    public List<Film> getFilmWithTheMostLikes(@RequestParam("count") Integer count) {
-        return filmService.getFilmWithTheMostLikes(count);
+    public ResponseEntity<byte[]> getFilmWithTheMostLikes(@RequestParam("count") Integer count) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(filmService.getFilmWithTheMostLikesJson(count));
+    }
+
+    // Вместо опроса /popular: событие snapshot с текущим топом, затем не чаще раза в интервал — ranks с изменениями
+    @GetMapping(value = "/popular/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPopular() {
+        return popularityBroadcaster.subscribe();
     }
 }
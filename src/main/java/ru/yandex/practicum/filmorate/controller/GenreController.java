@@ -1,31 +1,53 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.GenreService;
 
+import java.time.Duration;
 import java.util.List;
 
 @RestController
 @RequestMapping("/genres")
 public class GenreController {
     private GenreService genreService;
+    private CacheControl cacheControl;
 
-
-    public GenreController(GenreService genreService) {
+    public GenreController(GenreService genreService,
+                           @Value("${filmorate.http.reference-data-max-age:P1D}") Duration maxAge) {
         this.genreService = genreService;
+        this.cacheControl = CacheControl.maxAge(maxAge).cachePublic();
     }
 
     @GetMapping
-    public List<Genre> findAll() {
-        return genreService.findAll();
+    public ResponseEntity<List<Genre>> findAll(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                               String ifNoneMatch) {
+        String etag = genreService.version();
+        if (ConditionalResponses.matches(ifNoneMatch, etag)) {
+            return ConditionalResponses.notModified(etag, cacheControl);
+        }
+
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(genreService.findAll());
     }
 
     @GetMapping("/{id}")
-    public Genre findById(@PathVariable  long id) {
-        return genreService.findById(id);
+    public ResponseEntity<Genre> findById(@PathVariable long id,
+                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                          String ifNoneMatch) {
+        Genre genre = genreService.findById(id);
+        String etag = genreService.version();
+        if (ConditionalResponses.matches(ifNoneMatch, etag)) {
+            return ConditionalResponses.notModified(etag, cacheControl);
+        }
+
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(genre);
     }
 }
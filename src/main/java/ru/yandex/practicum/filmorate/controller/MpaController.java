@@ -1,30 +1,53 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.service.MpaService;
 
+import java.time.Duration;
 import java.util.List;
 
 @RestController
 @RequestMapping("/mpa")
 public class MpaController {
     private MpaService mpaService;
+    private CacheControl cacheControl;
 
-    public MpaController(MpaService mpaService) {
+    public MpaController(MpaService mpaService,
+                         @Value("${filmorate.http.reference-data-max-age:P1D}") Duration maxAge) {
         this.mpaService = mpaService;
+        this.cacheControl = CacheControl.maxAge(maxAge).cachePublic();
     }
 
     @GetMapping
-    public List<Mpa> findAll() {
-        return mpaService.findAll();
+    public ResponseEntity<List<Mpa>> findAll(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                             String ifNoneMatch) {
+        String etag = mpaService.version();
+        if (ConditionalResponses.matches(ifNoneMatch, etag)) {
+            return ConditionalResponses.notModified(etag, cacheControl);
+        }
+
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(mpaService.findAll());
     }
 
     @GetMapping("/{id}")
-    public Mpa findById(@PathVariable long id) {
-        return mpaService.findById(id);
+    public ResponseEntity<Mpa> findById(@PathVariable long id,
+                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                        String ifNoneMatch) {
+        Mpa mpa = mpaService.findById(id);
+        String etag = mpaService.version();
+        if (ConditionalResponses.matches(ifNoneMatch, etag)) {
+            return ConditionalResponses.notModified(etag, cacheControl);
+        }
+
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(mpa);
     }
 }
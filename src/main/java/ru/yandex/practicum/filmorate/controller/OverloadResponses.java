@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.util.Map;
+
+final class OverloadResponses {
+    private OverloadResponses() {
+    }
+
+    // Фильтры отвечают до DispatcherServlet, поэтому тело ошибки пишется в формате ErrorHandler вручную
+    static void write(HttpServletResponse response, ObjectMapper objectMapper, HttpStatus status, String error,
+                      String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getOutputStream(), Map.of(
+                "error", error,
+                "message", message
+        ));
+    }
+}
@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.yandex.practicum.filmorate.dal.RequestStatements;
+
+import java.io.IOException;
+
+/**
+ * Считает SQL-запросы каждого HTTP-запроса (filmorate.http.statements по эндпоинту) и предупреждает о N+1:
+ * если один и тот же запрос выполнен не меньше threshold раз, пишет warning и увеличивает
+ * filmorate.db.repeated.statements с тегами endpoint и query.
+ */
+@Slf4j
+@Component
+public class StatementCountingFilter extends OncePerRequestFilter {
+    private final MeterRegistry registry;
+    private final int threshold;
+
+    public StatementCountingFilter(MeterRegistry registry,
+                                   @Value("${filmorate.db.repeated-statements.threshold:5}") int threshold) {
+        this.registry = registry;
+        this.threshold = threshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try (RequestStatements statements = RequestStatements.open()) {
+            chain.doFilter(request, response);
+
+            if (statements.total() == 0) {
+                return;
+            }
+
+            String endpoint = endpoint(request);
+            DistributionSummary.builder("filmorate.http.statements")
+                    .description("Число SQL-запросов на один HTTP-запрос")
+                    .tag("endpoint", endpoint)
+                    .register(registry)
+                    .record(statements.total());
+
+            statements.repeated(threshold).forEach((query, times) -> {
+                log.warn("Возможен N+1: {} выполнил запрос {} {} раз", endpoint, query, times);
+                Counter.builder("filmorate.db.repeated.statements")
+                        .description("HTTP-запросы, повторявшие один SQL-запрос не меньше порога")
+                        .tag("endpoint", endpoint)
+                        .tag("query", query)
+                        .register(registry)
+                        .increment();
+            });
+        }
+    }
+
+    // Шаблон пути вместо самого пути, чтобы id не размножали теги: "GET /films/{id}"
+    private static String endpoint(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : "unmapped");
+    }
+}
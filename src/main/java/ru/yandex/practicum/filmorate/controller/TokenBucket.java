@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Корзина токенов без блокировок: ratePerSecond токенов в секунду, не больше burst подряд.
+ * Состояние — одно число: момент, когда корзина снова станет полной (алгоритм GCRA),
+ * поэтому запрос берёт токен одним compareAndSet.
+ */
+final class TokenBucket {
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    TokenBucket(int ratePerSecond, int burst, long nowNanos) {
+        this.intervalNanos = 1_000_000_000L / ratePerSecond;
+        this.toleranceNanos = intervalNanos * (burst - 1);
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    boolean tryAcquire(long nowNanos) {
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long next = Math.max(arrival, nowNanos) + intervalNanos;
+            if (next - nowNanos > toleranceNanos + intervalNanos) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, next)) {
+                return true;
+            }
+        }
+    }
+
+    // Через сколько наносекунд появится следующий токен
+    long nanosUntilNextToken(long nowNanos) {
+        return Math.max(0, theoreticalArrival.get() - toleranceNanos - nowNanos);
+    }
+
+    // Корзина полна: её можно удалить, новая корзина в том же состоянии ничем не отличается
+    boolean isFull(long nowNanos) {
+        return theoreticalArrival.get() - nowNanos <= 0;
+    }
+}
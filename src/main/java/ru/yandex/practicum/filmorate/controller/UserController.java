@@ -1,11 +1,19 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FeedService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -13,14 +21,32 @@ import java.util.Set;
 @RequestMapping("/users")
 public class UserController {
     private UserService userService;
+    private ObjectMapper objectMapper;
+    private FeedService feedService;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ObjectMapper objectMapper, FeedService feedService) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.feedService = feedService;
     }
 
+    // По умолчанию список отдаётся постранично (?after=<id>&limit=N),
+    // вся таблица целиком — только по явному ?unpaged=true
     @GetMapping
-    public Collection<User> findAll() {
-        return userService.findAll();
+    public ResponseEntity<? extends Collection<User>> findAll(@RequestParam(required = false) Integer after,
+                                                         @RequestParam(required = false) Integer limit,
+                                                         @RequestParam(defaultValue = "false") boolean unpaged) {
+        if (unpaged) {
+            return ResponseEntity.ok(userService.findAll());
+        }
+
+        return CursorPageResponses.of(userService.findPage(after, limit));
+    }
+
+    // Выгрузка всей таблицы в формате NDJSON без накопления списка в памяти
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> export() {
+        return NdjsonResponses.of(objectMapper, userService::exportAll);
     }
 
     @GetMapping("/{id}")
@@ -33,6 +59,12 @@ public class UserController {
         return userService.create(user);
     }
 
+    // Элементы с ошибками не прерывают пакет: для каждого возвращается id или причина отказа
+    @PostMapping("/batch")
+    public List<BatchItemResult> createBatch(@RequestBody List<User> users) {
+        return userService.createBatch(users);
+    }
+
     @PutMapping
     public User update(@Valid @RequestBody User newUser) {
         return userService.update(newUser);
@@ -57,4 +89,26 @@ public class UserController {
     public Set<User> getFriendsCommonOtherFriend(@PathVariable Integer id, @PathVariable Integer otherId) {
         return userService.getFriendsCommonOtherFriend(id, otherId);
     }
+
+    @GetMapping("/{id}/recommendations")
+    public List<User> getRecommendations(@PathVariable Integer id,
+                                         @RequestParam(defaultValue = "10") Integer limit) {
+        return userService.getRecommendations(id, limit);
+    }
+
+    @GetMapping("/{id}/recommended-films")
+    public List<Film> getRecommendedFilms(@PathVariable Integer id,
+                                          @RequestParam(defaultValue = "10") Integer limit) {
+        return userService.getRecommendedFilms(id, limit);
+    }
+
+    // Лента от новых событий к старым (?before=<eventId>&limit=N), ?friends=true добавляет события друзей.
+    // События пишутся в БД пакетами, поэтому только что совершённое действие появляется в ленте с задержкой
+    @GetMapping("/{id}/feed")
+    public ResponseEntity<List<FeedEvent>> getFeed(@PathVariable Integer id,
+                                                   @RequestParam(defaultValue = "false") boolean friends,
+                                                   @RequestParam(required = false) Integer before,
+                                                   @RequestParam(required = false) Integer limit) {
+        return CursorPageResponses.of(feedService.getFeed(id, friends, before, limit));
+    }
 }
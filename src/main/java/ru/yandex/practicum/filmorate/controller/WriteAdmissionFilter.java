@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Защищает чтение от клиентов, заваливающих /films и /users запросами на запись.
+ * Каждый клиент (адрес) получает свою {@link TokenBucket} на каждый класс эндпоинтов:
+ * likes, friends, batch, films, users; без токена запрос получает 429 с Retry-After.
+ * Кроме того, одновременно выполняется не больше max-concurrent-writes записей, остальные
+ * сразу получают 503 — так запись не может занять все соединения с БД.
+ *
+ * <p>Решения считаются в filmorate.http.admission с тегами class и result (accepted, rate_limited, overloaded).
+ *
+ * <p>По умолчанию выключен: клиентом считается адрес соединения, а за обратным прокси он у всех один.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.rate-limit.enabled", havingValue = "true")
+public class WriteAdmissionFilter extends OncePerRequestFilter {
+    private static final String[] ENDPOINT_CLASSES = {"likes", "friends", "batch", "films", "users"};
+
+    private final int ratePerSecond;
+    private final int burst;
+    private final Semaphore writePermits;
+    private final ObjectMapper objectMapper;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, Counter> accepted = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rateLimited = new ConcurrentHashMap<>();
+    private final Map<String, Counter> overloaded = new ConcurrentHashMap<>();
+
+    public WriteAdmissionFilter(@Value("${filmorate.rate-limit.rate-per-second:20}") int ratePerSecond,
+                                @Value("${filmorate.rate-limit.burst:40}") int burst,
+                                @Value("${filmorate.rate-limit.max-concurrent-writes:5}") int maxConcurrentWrites,
+                                ObjectMapper objectMapper, MeterRegistry registry) {
+        if (ratePerSecond <= 0 || burst <= 0 || maxConcurrentWrites <= 0) {
+            throw new IllegalArgumentException("filmorate.rate-limit: rate-per-second, burst и max-concurrent-writes "
+                    + "должны быть положительными");
+        }
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.writePermits = new Semaphore(maxConcurrentWrites);
+        this.objectMapper = objectMapper;
+        for (String endpointClass : ENDPOINT_CLASSES) {
+            accepted.put(endpointClass, counter(registry, endpointClass, "accepted"));
+            rateLimited.put(endpointClass, counter(registry, endpointClass, "rate_limited"));
+            overloaded.put(endpointClass, counter(registry, endpointClass, "overloaded"));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String method = request.getMethod();
+        if ("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)) {
+            return true;
+        }
+        String path = request.getRequestURI();
+        return !path.startsWith("/films") && !path.startsWith("/users");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String endpointClass = endpointClass(request.getRequestURI());
+        String client = request.getRemoteAddr();
+        long now = System.nanoTime();
+
+        TokenBucket bucket = buckets.computeIfAbsent(client + " " + endpointClass,
+                key -> new TokenBucket(ratePerSecond, burst, now));
+        if (!bucket.tryAcquire(now)) {
+            rateLimited.get(endpointClass).increment();
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(
+                    bucket.nanosUntilNextToken(now) + TimeUnit.SECONDS.toNanos(1) - 1));
+            log.debug("Запрос {} {} от {} отклонён: превышен лимит", request.getMethod(), request.getRequestURI(),
+                    client);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            OverloadResponses.write(response, objectMapper, HttpStatus.TOO_MANY_REQUESTS,
+                    "Слишком много запросов", "Повторите запрос через " + retryAfterSeconds + " с");
+            return;
+        }
+
+        if (!writePermits.tryAcquire()) {
+            overloaded.get(endpointClass).increment();
+            log.warn("Запрос {} {} отклонён: слишком много одновременных записей", request.getMethod(),
+                    request.getRequestURI());
+            OverloadResponses.write(response, objectMapper, HttpStatus.SERVICE_UNAVAILABLE,
+                    "Сервис перегружен", "Повторите запрос позже");
+            return;
+        }
+
+        accepted.get(endpointClass).increment();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            writePermits.release();
+        }
+    }
+
+    // Полные корзины не отличаются от новых: удаляем их, чтобы число корзин не росло с числом клиентов
+    @Scheduled(fixedDelayString = "${filmorate.rate-limit.cleanup-interval:PT1M}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    static String endpointClass(String path) {
+        if (path.contains("/like/")) {
+            return "likes";
+        }
+        if (path.contains("/friends/")) {
+            return "friends";
+        }
+        if (path.endsWith("/batch")) {
+            return "batch";
+        }
+        return path.startsWith("/films") ? "films" : "users";
+    }
+
+    private static Counter counter(MeterRegistry registry, String endpointClass, String result) {
+        return Counter.builder("filmorate.http.admission")
+                .description("Решения о допуске запросов на запись")
+                .tag("class", endpointClass)
+                .tag("result", result)
+                .register(registry);
+    }
+}
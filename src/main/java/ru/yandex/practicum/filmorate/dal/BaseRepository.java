@@ -1,42 +1,92 @@
 package ru.yandex.practicum.filmorate.dal;
 
-import lombok.RequiredArgsConstructor;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 
 import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
-@RequiredArgsConstructor
 public class BaseRepository<T> {
     protected final JdbcTemplate jdbc;
     protected final RowMapper<T> mapper;
+    private final QueryMetrics queryMetrics;
+    private final Map<String, String> queryNames;
+
+    public BaseRepository(JdbcTemplate jdbc, RowMapper<T> mapper, QueryMetrics queryMetrics) {
+        this.jdbc = jdbc;
+        this.mapper = mapper;
+        this.queryMetrics = queryMetrics;
+        this.queryNames = QueryMetrics.queryNames(getClass());
+    }
 
     protected Optional<T> findOne(String query, Object... params) {
-        try {
-            T result = jdbc.queryForObject(query, mapper, params);
-            return Optional.ofNullable(result);
-        } catch (EmptyResultDataAccessException ignored) {
-            return Optional.empty();
-        }
+        return timed(query, () -> {
+            try {
+                T result = jdbc.queryForObject(query, mapper, params);
+                return Optional.ofNullable(result);
+            } catch (EmptyResultDataAccessException ignored) {
+                return Optional.empty();
+            }
+        });
     }
 
     protected List<T> findMany(String query, Object... params) {
-        return jdbc.query(query, mapper, params);
+        return timed(query, () -> jdbc.query(query, mapper, params));
+    }
+
+    // Прямые вызовы jdbc в репозиториях оборачиваются сюда, чтобы попасть в метрики под именем константы запроса
+    protected <R> R timed(String query, Supplier<R> call) {
+        return queryMetrics.record(queryNames.getOrDefault(query, QueryMetrics.UNNAMED_QUERY), call);
+    }
+
+    // Построчная обработка с подсчётом строк для метрик
+    protected void queryEach(String query, RowCallbackHandler handler, Object... params) {
+        timed(query, () -> {
+            int[] rows = new int[1];
+            jdbc.query(query, (RowCallbackHandler) rs -> {
+                rows[0]++;
+                handler.processRow(rs);
+            }, params);
+            return rows[0];
+        });
+    }
+
+    // Проверка существования без загрузки строки: запрос вида SELECT COUNT(*) ... WHERE id = ?
+    protected boolean exists(String query, int id) {
+        Integer count = timed(query, () -> jdbc.queryForObject(query, Integer.class, id));
+        return count != null && count > 0;
+    }
+
+    // Запрос должен выбирать limit + 1 строк: лишняя строка означает, что есть следующая страница
+    protected CursorPage<T> toPage(List<T> rows, int limit, Function<T, Integer> idGetter) {
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+
+        List<T> items = rows.subList(0, limit);
+        return new CursorPage<>(items, idGetter.apply(items.getLast()));
     }
 
     protected boolean delete(String query, long id) {
-        int rowsDeleted = jdbc.update(query, id);
+        int rowsDeleted = timed(query, () -> jdbc.update(query, id));
         return rowsDeleted > 0;
     }
 
     protected void update(String query, Object... params) {
-        int rowsUpdated = jdbc.update(query, params);
+        int rowsUpdated = timed(query, () -> jdbc.update(query, params));
         if (rowsUpdated == 0) {
             throw new InternalServerException("Не удалось обновить данные");
         }
@@ -44,7 +94,7 @@ public class BaseRepository<T> {
 
     protected Integer insert(String query, Object... params) {
         GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbc.update(connection -> {
+        timed(query, () -> jdbc.update(connection -> {
             PreparedStatement ps = connection
                     .prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
             for (int idx = 0; idx < params.length; idx++) {
@@ -53,7 +103,7 @@ public class BaseRepository<T> {
 
             return ps;
 
-            }, keyHolder);
+            }, keyHolder));
 
         Integer id = keyHolder.getKeyAs(Integer.class);
 
@@ -64,4 +114,40 @@ public class BaseRepository<T> {
             throw new InternalServerException("Не удалось сохранить данные");
         }
     }
-}
\ No newline at end of file
+
+    // Вставка JDBC-пакетами по batchSize строк; сгенерированные id возвращаются в порядке строк
+    protected List<Integer> insertBatch(String query, List<Object[]> rows, int batchSize) {
+        List<Integer> ids = new ArrayList<>(rows.size());
+
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            List<Object[]> chunk = rows.subList(from, Math.min(from + batchSize, rows.size()));
+            GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+
+            timed(query, () -> jdbc.batchUpdate(
+                    connection -> connection.prepareStatement(query, new String[]{"id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            Object[] params = chunk.get(i);
+                            for (int idx = 0; idx < params.length; idx++) {
+                                ps.setObject(idx + 1, params[idx]);
+                            }
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return chunk.size();
+                        }
+                    },
+                    keyHolder
+            ));
+
+            if (keyHolder.getKeyList().size() != chunk.size()) {
+                throw new InternalServerException("Не удалось сохранить данные");
+            }
+            keyHolder.getKeyList().forEach(keys -> ids.add(((Number) keys.values().iterator().next()).intValue()));
+        }
+
+        return ids;
+    }
+}
@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Отложенная запись событий ленты: запрос только ставит событие в очередь, а в БД оно попадает
+ * пакетом раз в flush-interval и при остановке приложения. Сбросы идут строго по очереди,
+ * поэтому id событий растут в порядке их добавления.
+ *
+ * <p>Очередь ограничена capacity. Когда она полна, вызывающий поток сам сбрасывает её
+ * и только потом добавляет своё событие.
+ */
+@Slf4j
+@Component
+public class FeedEventWriter {
+    private final FeedRepository feedRepository;
+    private final int batchSize;
+    private final BlockingQueue<FeedEvent> queue;
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public FeedEventWriter(FeedRepository feedRepository,
+                           @Value("${filmorate.feed.write-behind.capacity:100000}") int capacity,
+                           @Value("${filmorate.batch.jdbc-batch-size:500}") int batchSize) {
+        this.feedRepository = feedRepository;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public void append(FeedEvent event) {
+        while (!queue.offer(event)) {
+            flush();
+        }
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.feed.write-behind.flush-interval:PT0.2S}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<FeedEvent> drained = new ArrayList<>(Math.min(queue.size(), batchSize));
+            while (queue.drainTo(drained, batchSize) > 0) {
+                write(drained);
+                drained.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void write(List<FeedEvent> events) {
+        try {
+            feedRepository.saveAll(events, batchSize);
+        } catch (RuntimeException e) {
+            log.error("Не удалось записать пакет из {} событий ленты, события потеряны", events.size(), e);
+        }
+    }
+}
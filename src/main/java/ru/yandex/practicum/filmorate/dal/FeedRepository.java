@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.model.CursorPage;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+@Repository
+public class FeedRepository extends BaseRepository<FeedEvent> {
+    private static final String INSERT_QUERY =
+            "INSERT INTO feed_events (user_id, event_type, operation, entity_id, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    // ORDER BY повторяет индекс (user_id, id DESC): только так H2 читает участок индекса по порядку
+    // и останавливается на LIMIT, а не сортирует все события пользователя
+    private static final String FIND_USER_PAGE_QUERY =
+            "SELECT * FROM feed_events WHERE user_id = ? AND id < ? ORDER BY user_id, id DESC LIMIT ?";
+
+    private static final int USERS_PER_QUERY = 16;
+
+    // Несколько пользователей: по ветке на пользователя, каждая — такое же чтение своего участка индекса.
+    // Число веток постоянно, чтобы текст запроса не зависел от числа друзей; лишние ветки получают id 0
+    private static final String FIND_USERS_PAGE_QUERY = String.join(" UNION ALL ", Collections.nCopies(
+            USERS_PER_QUERY, "(" + FIND_USER_PAGE_QUERY + ")")) + " ORDER BY id DESC LIMIT ?";
+
+    public FeedRepository(JdbcTemplate jdbc, RowMapper<FeedEvent> mapper, QueryMetrics queryMetrics) {
+        super(jdbc, mapper, queryMetrics);
+    }
+
+    // События добавляются пакетами в одной транзакции, в порядке списка
+    @Transactional
+    public void saveAll(List<FeedEvent> events, int batchSize) {
+        timed(INSERT_QUERY, () -> jdbc.batchUpdate(INSERT_QUERY, events, batchSize, (ps, event) -> {
+            ps.setInt(1, event.getUserId());
+            ps.setString(2, event.getEventType().name());
+            ps.setString(3, event.getOperation().name());
+            ps.setInt(4, event.getEntityId());
+            ps.setObject(5, event.getTimestamp().atOffset(ZoneOffset.UTC));
+        }));
+    }
+
+    // События пользователей userIds от новых к старым, начиная с id меньше beforeId. Каждый пользователь
+    // читается по своему участку индекса (user_id, id DESC) не дальше limit + 1 событий, а не весь журнал;
+    // результаты запросов по USERS_PER_QUERY пользователей сливаются в памяти
+    public CursorPage<FeedEvent> findPage(int[] userIds, int beforeId, int limit) {
+        if (userIds.length == 0) {
+            return new CursorPage<>(List.of(), null);
+        }
+        if (userIds.length == 1) {
+            return toPage(findMany(FIND_USER_PAGE_QUERY, userIds[0], beforeId, limit + 1), limit,
+                    FeedEvent::getEventId);
+        }
+
+        List<List<FeedEvent>> chunks = new ArrayList<>();
+        for (int from = 0; from < userIds.length; from += USERS_PER_QUERY) {
+            Object[] params = new Object[USERS_PER_QUERY * 3 + 1];
+            for (int i = 0; i < USERS_PER_QUERY; i++) {
+                params[i * 3] = from + i < userIds.length ? userIds[from + i] : 0;
+                params[i * 3 + 1] = beforeId;
+                params[i * 3 + 2] = limit + 1;
+            }
+            params[params.length - 1] = limit + 1;
+            chunks.add(findMany(FIND_USERS_PAGE_QUERY, params));
+        }
+
+        return toPage(merge(chunks, limit + 1), limit, FeedEvent::getEventId);
+    }
+
+    // Слияние списков, отсортированных по убыванию id: не больше limit первых событий
+    private static List<FeedEvent> merge(List<List<FeedEvent>> sorted, int limit) {
+        if (sorted.size() == 1) {
+            return sorted.getFirst();
+        }
+
+        // голова списка — {номер списка, позиция в нём}
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Comparator.<int[]>comparingInt(
+                head -> sorted.get(head[0]).get(head[1]).getEventId()).reversed());
+        for (int i = 0; i < sorted.size(); i++) {
+            if (!sorted.get(i).isEmpty()) {
+                heads.add(new int[]{i, 0});
+            }
+        }
+
+        List<FeedEvent> merged = new ArrayList<>(limit);
+        while (merged.size() < limit && !heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<FeedEvent> events = sorted.get(head[0]);
+            merged.add(events.get(head[1]));
+            if (++head[1] < events.size()) {
+                heads.add(head);
+            }
+        }
+
+        return merged;
+    }
+}
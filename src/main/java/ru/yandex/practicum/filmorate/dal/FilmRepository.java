@@ -1,23 +1,53 @@
 package ru.yandex.practicum.filmorate.dal;
 
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.model.Mpa;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 @Repository
 public class FilmRepository extends BaseRepository<Film> {
-    private static final String FIND_ALL_QUERY = "SELECT * FROM films";
+    private static final String FIND_ALL_QUERY = "SELECT * FROM films ORDER BY id";
 
     private static final String FIND_BY_ID_QUERY = "SELECT * FROM films WHERE id = ?";
 
+    private static final String FIND_PAGE_QUERY = "SELECT * FROM films WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String FIND_BY_IDS_QUERY = "SELECT * FROM films WHERE id = ANY(?)";
+
+    private static final String EXPORT_FILMS_QUERY = "SELECT * FROM films ORDER BY id";
+
+    private static final String EXPORT_FILM_GENRES_QUERY =
+            "SELECT film_id, genre_id FROM film_genre ORDER BY film_id, genre_id";
+
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    private static final String FIND_LIKES_COUNTS = "SELECT id, likes_count FROM films";
+    private static final String FIND_ALL_LIKES = "SELECT user_id, film_id FROM likes";
+    private static final String FIND_ALL_TEXTS = "SELECT id, name, description FROM films ORDER BY id";
+    private static final String FIND_ALL_IDS = "SELECT id FROM films";
+    private static final String COUNT_BY_ID_QUERY = "SELECT COUNT(*) FROM films WHERE id = ?";
+
     private static final String INSERT_QUERY =
             "INSERT INTO films (name, description, release_date, duration, mpa_id)" +
             "VALUES (?, ?, ?, ?, ?)";
@@ -26,53 +56,154 @@ public class FilmRepository extends BaseRepository<Film> {
             "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, mpa_id = ? " +
                     "WHERE id = ?";
 
-    private static final String FIND_GENRES_BY_FILM =
-            "SELECT genre_id FROM film_genre WHERE film_id = ? ORDER BY genre_id";
+    private static final String INSERT_FILM_GENRE =
+            "INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)";
+
+    private static final String FIND_ALL_FILM_GENRES =
+            "SELECT film_id, genre_id FROM film_genre";
+
+    private static final String FIND_FILM_GENRES_BY_FILM_IDS =
+            "SELECT film_id, genre_id FROM film_genre WHERE film_id = ANY(?)";
 
     private static final String INSERT_LIKE =
-            "INSERT INTO likes (film_id, user_id) VALUES (?, ?)";
+            "INSERT INTO likes (film_id, user_id) " +
+                    "SELECT ?, ? WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)";
 
     private static final String DELETE_LIKE =
             "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
 
+    private static final String CHANGE_LIKES_COUNT =
+            "UPDATE films SET likes_count = likes_count + ? WHERE id = ?";
+
+    private static final String FIND_LIKES_COUNT_DRIFTS =
+            "SELECT id, actual - likes_count AS drift FROM (" +
+                    "SELECT f.id, f.likes_count, (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.id) AS actual " +
+                    "FROM films f) WHERE actual <> likes_count";
+
     private static final String FIND_POPULAR_FILMS =
-            "SELECT f.* " +
-                    "FROM films f " +
-                    "LEFT JOIN likes fl ON f.id = fl.film_id " +
-                    "GROUP BY f.id " +
-                    "ORDER BY COUNT(fl.user_id) DESC " +
-                    "LIMIT ?";
+            "SELECT * FROM films ORDER BY likes_count DESC, id LIMIT ?";
+
+    private final ReferenceDataCache referenceData;
 
-    public FilmRepository(JdbcTemplate jdbc, RowMapper<Film> mapper) {
-        super(jdbc, mapper);
+    public FilmRepository(JdbcTemplate jdbc, RowMapper<Film> mapper, ReferenceDataCache referenceData,
+                          QueryMetrics queryMetrics) {
+        super(jdbc, mapper, queryMetrics);
+        this.referenceData = referenceData;
     }
 
     public List<Film> findAll() {
         List<Film> films = findMany(FIND_ALL_QUERY);
 
-        for (Film film : films) {
-            film.setGenres(getGenresByFilmId(film.getId()));
-            if (film.getMpa() != null) {
-                film.setMpa(getMpaById(film.getMpa().getId()));
-            }
-        }
+        // жанры всех фильмов загружаем одним запросом, без фильтра по id
+        queryEach(FIND_ALL_FILM_GENRES, genreCollector(indexById(films)));
+        films.forEach(this::resolveMpa);
 
         return films;
     }
 
+    public CursorPage<Film> findPage(int afterId, int limit) {
+        List<Film> films = findMany(FIND_PAGE_QUERY, afterId, limit + 1);
+
+        CursorPage<Film> page = toPage(films, limit, Film::getId);
+        loadGenres(page.getItems());
+        page.getItems().forEach(this::resolveMpa);
+
+        return page;
+    }
+
     public Optional<Film> findById(long filmId) {
         Optional<Film> filmOpt = findOne(FIND_BY_ID_QUERY, filmId);
 
         filmOpt.ifPresent(film -> {
-            film.setGenres(getGenresByFilmId(film.getId()));
-            if (film.getMpa() != null) {
-                film.setMpa(getMpaById(film.getMpa().getId()));
-            }
+            loadGenres(List.of(film));
+            resolveMpa(film);
         });
 
         return filmOpt;
     }
 
+    // Фильмы в порядке переданных id; отсутствующие id пропускаются
+    public List<Film> findByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        List<Film> films = findMany(FIND_BY_IDS_QUERY, (Object) ids.toArray(new Integer[0]));
+
+        loadGenres(films);
+        films.forEach(this::resolveMpa);
+
+        Map<Integer, Film> filmsById = new HashMap<>();
+        films.forEach(film -> filmsById.put(film.getId(), film));
+
+        return ids.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    // Потоковая выгрузка всех фильмов: два курсора, упорядоченных по id фильма,
+    // сливаются за один проход, так что в памяти держится только текущий фильм
+    public void exportAll(Consumer<Film> consumer) {
+        timed(EXPORT_FILMS_QUERY, () -> jdbc.execute((ConnectionCallback<Integer>) connection -> {
+            try (PreparedStatement filmsStatement = connection.prepareStatement(EXPORT_FILMS_QUERY);
+                 PreparedStatement genresStatement = connection.prepareStatement(EXPORT_FILM_GENRES_QUERY)) {
+                filmsStatement.setFetchSize(EXPORT_FETCH_SIZE);
+                genresStatement.setFetchSize(EXPORT_FETCH_SIZE);
+
+                try (ResultSet films = filmsStatement.executeQuery();
+                     ResultSet genres = genresStatement.executeQuery()) {
+                    boolean hasGenre = genres.next();
+                    int rowNum = 0;
+
+                    while (films.next()) {
+                        Film film = mapper.mapRow(films, rowNum++);
+
+                        while (hasGenre && genres.getInt("film_id") < film.getId()) {
+                            hasGenre = genres.next();
+                        }
+                        while (hasGenre && genres.getInt("film_id") == film.getId()) {
+                            film.getGenres().add(resolveGenre(genres.getLong("genre_id")));
+                            hasGenre = genres.next();
+                        }
+
+                        resolveMpa(film);
+                        consumer.accept(film);
+                    }
+
+                    return rowNum;
+                }
+            }
+        }));
+    }
+
+    // Тексты всех фильмов по возрастанию id; у переданных фильмов заполнены только id, name и description
+    public void forEachText(Consumer<Film> consumer) {
+        queryEach(FIND_ALL_TEXTS, rs -> consumer.accept(mapText(rs)));
+    }
+
+    public boolean existsById(int filmId) {
+        return exists(COUNT_BY_ID_QUERY, filmId);
+    }
+
+    public void forEachId(IntConsumer consumer) {
+        queryEach(FIND_ALL_IDS, rs -> consumer.accept(rs.getInt("id")));
+    }
+
+    // Все лайки парами (user_id, film_id)
+    public void forEachLike(BiConsumer<Integer, Integer> consumer) {
+        queryEach(FIND_ALL_LIKES, rs -> consumer.accept(rs.getInt("user_id"), rs.getInt("film_id")));
+    }
+
+    public Map<Integer, Long> findLikesCounts() {
+        Map<Integer, Long> likesCounts = new HashMap<>();
+        queryEach(FIND_LIKES_COUNTS, rs -> {
+            likesCounts.put(rs.getInt("id"), rs.getLong("likes_count"));
+        });
+
+        return likesCounts;
+    }
+
     public Film save(Film film) {
         Integer id = insert(
                 INSERT_QUERY,
@@ -88,6 +219,41 @@ public class FilmRepository extends BaseRepository<Film> {
         return film;
     }
 
+    // Фильмы и их жанры вставляются пакетами в одной транзакции; id проставляются в переданные объекты
+    @Transactional
+    public List<Film> saveAll(List<Film> films, int batchSize) {
+        List<Object[]> rows = films.stream()
+                .map(film -> new Object[]{
+                        film.getName(),
+                        film.getDescription(),
+                        film.getReleaseDate(),
+                        film.getDuration(),
+                        film.getMpa() != null ? film.getMpa().getId() : null
+                })
+                .toList();
+
+        List<Integer> ids = insertBatch(INSERT_QUERY, rows, batchSize);
+
+        List<Object[]> genreRows = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(ids.get(i));
+            if (film.getGenres() != null) {
+                film.getGenres().stream()
+                        .map(Genre::getId)
+                        .distinct()
+                        .forEach(genreId -> genreRows.add(new Object[]{film.getId(), genreId}));
+            }
+        }
+
+        timed(INSERT_FILM_GENRE, () -> jdbc.batchUpdate(INSERT_FILM_GENRE, genreRows, batchSize, (ps, row) -> {
+            ps.setObject(1, row[0]);
+            ps.setObject(2, row[1]);
+        }));
+
+        return films;
+    }
+
     public Film update(Film film) {
         update(
                 UPDATE_QUERY,
@@ -102,56 +268,152 @@ public class FilmRepository extends BaseRepository<Film> {
         return film;
     }
 
-    public void likeFilm(Integer filmId, Integer userId) {
-        jdbc.update(INSERT_LIKE, filmId, userId);
+    // Счётчик likes_count меняется только если лайк действительно добавлен или удалён
+    @Transactional
+    public boolean likeFilm(Integer filmId, Integer userId) {
+        boolean added = timed(INSERT_LIKE, () -> jdbc.update(INSERT_LIKE, filmId, userId, filmId, userId)) > 0;
+        if (added) {
+            timed(CHANGE_LIKES_COUNT, () -> jdbc.update(CHANGE_LIKES_COUNT, 1, filmId));
+        }
+
+        return added;
     }
 
-    public void removeLike(Integer filmId, Integer userId) {
-        jdbc.update(DELETE_LIKE, filmId, userId);
+    @Transactional
+    public boolean removeLike(Integer filmId, Integer userId) {
+        boolean removed = timed(DELETE_LIKE, () -> jdbc.update(DELETE_LIKE, filmId, userId)) > 0;
+        if (removed) {
+            timed(CHANGE_LIKES_COUNT, () -> jdbc.update(CHANGE_LIKES_COUNT, -1, filmId));
+        }
+
+        return removed;
+    }
+
+    // Пакетное применение лайков из буфера; строки — пары (film_id, user_id).
+    // likes_count меняется только на те лайки, которые действительно добавлены или удалены
+    @Transactional
+    public void applyLikeChanges(List<Object[]> added, List<Object[]> removed, int batchSize) {
+        Map<Integer, Integer> deltas = new HashMap<>();
+
+        int[][] inserted = timed(INSERT_LIKE, () -> jdbc.batchUpdate(INSERT_LIKE, added, batchSize, (ps, row) -> {
+            ps.setObject(1, row[0]);
+            ps.setObject(2, row[1]);
+            ps.setObject(3, row[0]);
+            ps.setObject(4, row[1]);
+        }));
+        collectDeltas(added, inserted, batchSize, 1, deltas);
+
+        int[][] deleted = timed(DELETE_LIKE, () -> jdbc.batchUpdate(DELETE_LIKE, removed, batchSize, (ps, row) -> {
+            ps.setObject(1, row[0]);
+            ps.setObject(2, row[1]);
+        }));
+        collectDeltas(removed, deleted, batchSize, -1, deltas);
+
+        List<Object[]> countRows = deltas.entrySet().stream()
+                .filter(entry -> entry.getValue() != 0)
+                .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                .toList();
+        timed(CHANGE_LIKES_COUNT, () -> jdbc.batchUpdate(CHANGE_LIKES_COUNT, countRows, batchSize, (ps, row) -> {
+            ps.setObject(1, row[0]);
+            ps.setObject(2, row[1]);
+        }));
+    }
+
+    // Пересчёт likes_count по таблице likes, возвращает поправки: id фильма → на сколько изменился счётчик.
+    // Счётчик сдвигается на поправку, а не перезаписывается: лайк, записанный между чтением и исправлением,
+    // меняет и likes, и likes_count, поэтому разница между ними от него не зависит
+    @Transactional
+    public Map<Integer, Long> reconcileLikesCount() {
+        Map<Integer, Long> drifts = new HashMap<>();
+        queryEach(FIND_LIKES_COUNT_DRIFTS, rs -> {
+            drifts.put(rs.getInt("id"), rs.getLong("drift"));
+        });
+
+        List<Object[]> rows = drifts.entrySet().stream()
+                .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                .toList();
+        timed(CHANGE_LIKES_COUNT, () -> jdbc.batchUpdate(CHANGE_LIKES_COUNT, rows));
+
+        return drifts;
     }
 
     public List<Film> findMostLikedFilms(Integer count) {
-        List<Film> films = jdbc.query(FIND_POPULAR_FILMS, mapper, count);
+        List<Film> films = findMany(FIND_POPULAR_FILMS, count);
 
-        for (Film film : films) {
-            film.setGenres(getGenresByFilmId(film.getId()));
-            if (film.getMpa() != null) {
-                film.setMpa(getMpaById(film.getMpa().getId()));
-            }
-        }
+        loadGenres(films);
+        films.forEach(this::resolveMpa);
 
         return films;
     }
 
+    // Жанры для набора фильмов подгружаются одним запросом по массиву id,
+    // вместо отдельного запроса на каждый фильм; названия берутся из справочника в памяти
+    private void loadGenres(List<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, Film> filmsById = indexById(films);
 
-    private Set<Genre> getGenresByFilmId(Integer filmId) {
-        List<Genre> genres = jdbc.query(
-                "SELECT g.id, g.name FROM genres g " +
-                        "JOIN film_genre fg ON g.id = fg.genre_id " +
-                        "WHERE fg.film_id = ? ORDER BY g.id",
-                (rs, rowNum) -> {
-                    Genre genre = new Genre();
-                    genre.setId(rs.getLong("id"));
-                    genre.setName(rs.getString("name"));
-                    return genre;
-                },
-                filmId
+        queryEach(
+                FIND_FILM_GENRES_BY_FILM_IDS,
+                genreCollector(filmsById),
+                (Object) filmsById.keySet().toArray(new Integer[0])
         );
+    }
+
+    private Map<Integer, Film> indexById(List<Film> films) {
+        Map<Integer, Film> filmsById = new HashMap<>();
+
+        for (Film film : films) {
+            film.setGenres(new HashSet<>());
+            filmsById.put(film.getId(), film);
+        }
 
-        return new HashSet<>(genres);
+        return filmsById;
     }
 
-    private Mpa getMpaById(Long mpaId) {
-        return jdbc.queryForObject(
-                "SELECT id, name FROM mpa WHERE id = ?",
-                (rs, rowNum) -> {
-                    Mpa m = new Mpa();
-                    m.setId(rs.getLong("id"));
-                    m.setName(rs.getString("name"));
-                    return m;
-                },
-                mpaId
-        );
+    private RowCallbackHandler genreCollector(Map<Integer, Film> filmsById) {
+        return rs -> {
+            Film film = filmsById.get(rs.getInt("film_id"));
+            if (film == null) {
+                return;
+            }
+
+            film.getGenres().add(resolveGenre(rs.getLong("genre_id")));
+        };
     }
 
+    private Genre resolveGenre(long genreId) {
+        return referenceData.findGenreById(genreId).orElseGet(() -> {
+            Genre genre = new Genre();
+            genre.setId(genreId);
+            return genre;
+        });
+    }
+
+    private void resolveMpa(Film film) {
+        if (film.getMpa() != null) {
+            referenceData.findMpaById(film.getMpa().getId()).ifPresent(film::setMpa);
+        }
+    }
+
+    private static Film mapText(ResultSet rs) throws SQLException {
+        Film film = new Film();
+        film.setId(rs.getInt("id"));
+        film.setName(rs.getString("name"));
+        film.setDescription(rs.getString("description"));
+        return film;
+    }
+
+    private static void collectDeltas(List<Object[]> rows, int[][] updateCounts, int batchSize, int delta,
+                                      Map<Integer, Integer> deltas) {
+        for (int batch = 0; batch < updateCounts.length; batch++) {
+            for (int i = 0; i < updateCounts[batch].length; i++) {
+                if (updateCounts[batch][i] > 0) {
+                    deltas.merge((Integer) rows.get(batch * batchSize + i)[0], delta, Integer::sum);
+                }
+            }
+        }
+    }
 }
@@ -21,8 +21,8 @@ public class GenreRepository extends BaseRepository<Genre> {
     private static final String DELETE_FILM_GENRES =
             "DELETE FROM film_genre WHERE film_id = ?";
 
-    public GenreRepository(JdbcTemplate jdbc, RowMapper<Genre> mapper) {
-        super(jdbc, mapper);
+    public GenreRepository(JdbcTemplate jdbc, RowMapper<Genre> mapper, QueryMetrics queryMetrics) {
+        super(jdbc, mapper, queryMetrics);
     }
 
     public List<Genre> findAll() {
@@ -39,11 +39,11 @@ public class GenreRepository extends BaseRepository<Genre> {
                 .map(genre -> new Object[]{film.getId(), genre.getId()})
                 .toList();
 
-        jdbc.batchUpdate(INSERT_FILM_GENRE, batchArgs);
+        timed(INSERT_FILM_GENRE, () -> jdbc.batchUpdate(INSERT_FILM_GENRE, batchArgs));
     }
 
     public void updateGenre(Film film) {
-        jdbc.update(DELETE_FILM_GENRES, film.getId());
+        timed(DELETE_FILM_GENRES, () -> jdbc.update(DELETE_FILM_GENRES, film.getId()));
 
         addGenre(film);
     }
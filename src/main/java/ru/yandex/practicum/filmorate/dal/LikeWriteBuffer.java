@@ -0,0 +1,271 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Отложенная запись лайков. Операции копятся в памяти, по одной на пару (фильм, пользователь):
+ * повторная операция заменяет предыдущую, а лайк и снятие лайка взаимно уничтожаются.
+ * Буфер сбрасывается пакетами в одной транзакции, когда набирается flush-size пар,
+ * раз в flush-interval и при остановке приложения.
+ *
+ * <p>Число пар в буфере ограничено capacity. Когда буфер полон, вызывающий поток
+ * сам сбрасывает его и только потом добавляет свою операцию.
+ *
+ * <p>Буфер не знает, есть ли лайк в БД: изменилось ли состояние, решает переданная проверка,
+ * которая выполняется под блокировкой пары, поэтому порядок операций над парой в памяти
+ * и в буфере совпадает.
+ *
+ * <p>Если пакет не записался, операции пишутся по одной, каждая — до retry-attempts попыток
+ * с удваивающейся паузой от retry-backoff. Операция, которую так и не удалось записать, отбрасывается:
+ * она считается в filmorate.likes.write-behind.dropped, а обработчик из onDropped возвращает
+ * состояние в памяти к записанному в БД.
+ */
+@Slf4j
+@Component
+public class LikeWriteBuffer {
+    private final FilmRepository filmRepository;
+    private final boolean enabled;
+    private final int flushSize;
+    private final int batchSize;
+    private final int retryAttempts;
+    private final Duration retryBackoff;
+    private final Semaphore freeSlots;
+    private final Counter dropped;
+    private volatile DropHandler dropHandler = (filmId, userId, liked) -> {
+    };
+
+    // Ключ — (filmId << 32) | userId, значение — итоговое состояние: true — лайк есть
+    private final Map<Long, Boolean> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    // не synchronized: сброс ходит в БД и не должен занимать поток-носитель виртуального потока
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ExecutorService flusher;
+
+    public LikeWriteBuffer(FilmRepository filmRepository, MeterRegistry registry,
+                           @Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+                           @Value("${filmorate.likes.write-behind.capacity:100000}") int capacity,
+                           @Value("${filmorate.likes.write-behind.flush-size:1000}") int flushSize,
+                           @Value("${filmorate.likes.write-behind.retry-attempts:3}") int retryAttempts,
+                           @Value("${filmorate.likes.write-behind.retry-backoff:PT0.05S}") Duration retryBackoff,
+                           @Value("${filmorate.batch.jdbc-batch-size:500}") int batchSize) {
+        this.filmRepository = filmRepository;
+        this.enabled = enabled;
+        this.flushSize = flushSize;
+        this.batchSize = batchSize;
+        this.retryAttempts = retryAttempts;
+        this.retryBackoff = retryBackoff;
+        this.freeSlots = new Semaphore(capacity);
+        this.dropped = registry.counter("filmorate.likes.write-behind.dropped");
+        this.flusher = enabled ? Executors.newSingleThreadExecutor(Thread.ofPlatform()
+                .name("likes-flusher")
+                .daemon()
+                .factory()) : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void onDropped(DropHandler dropHandler) {
+        this.dropHandler = dropHandler;
+    }
+
+    // Возвращает результат stateChange; операция попадает в буфер, только если состояние изменилось
+    public boolean submit(int filmId, int userId, boolean liked, BooleanSupplier stateChange) {
+        while (!freeSlots.tryAcquire()) {
+            flush();
+        }
+
+        boolean[] changed = new boolean[1];
+        boolean[] slotUsed = new boolean[1];
+        pending.compute(key(filmId, userId), (key, previous) -> {
+            changed[0] = stateChange.getAsBoolean();
+            if (!changed[0]) {
+                return previous;
+            }
+            if (previous == null) {
+                slotUsed[0] = true;
+                return liked;
+            }
+            // предыдущая операция над парой ещё не записана и отменяется текущей
+            freeSlots.release();
+            return null;
+        });
+
+        if (!slotUsed[0]) {
+            freeSlots.release();
+        }
+        if (pending.size() >= flushSize && flushScheduled.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushScheduled.set(false);
+                flush();
+            });
+        }
+
+        return changed[0];
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.likes.write-behind.flush-interval:PT0.2S}")
+    public void scheduledFlush() {
+        if (enabled) {
+            flush();
+        }
+    }
+
+    // Сбросы идут строго по очереди, чтобы более поздняя операция над парой не обогнала раннюю
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private void flushPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Boolean> drained = new HashMap<>();
+        for (Long key : pending.keySet()) {
+            Boolean liked = pending.remove(key);
+            if (liked != null) {
+                drained.put(key, liked);
+                freeSlots.release();
+            }
+        }
+
+        List<Object[]> added = new ArrayList<>();
+        List<Object[]> removed = new ArrayList<>();
+        drained.forEach((key, liked) -> (liked ? added : removed).add(pair(key)));
+
+        try {
+            filmRepository.applyLikeChanges(added, removed, batchSize);
+        } catch (RuntimeException e) {
+            log.error("Не удалось записать пакет из {} лайков, записываем по одному", drained.size(), e);
+            drained.forEach((key, liked) -> {
+                if (!applyWithRetries(key, liked)) {
+                    drop(key, liked);
+                }
+            });
+        }
+    }
+
+    private boolean applyWithRetries(long key, boolean liked) {
+        int filmId = (int) (key >>> 32);
+        int userId = (int) key;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (liked) {
+                    filmRepository.likeFilm(filmId, userId);
+                } else {
+                    filmRepository.removeLike(filmId, userId);
+                }
+                return true;
+            } catch (RuntimeException e) {
+                if (attempt >= retryAttempts) {
+                    log.error("Операция с лайком фильма {} пользователем {} не записана за {} попыток, отбрасываем",
+                            filmId, userId, attempt, e);
+                    return false;
+                }
+                log.warn("Операция с лайком фильма {} пользователем {} не записана, попытка {}",
+                        filmId, userId, attempt, e);
+                if (!sleep(retryBackoff.multipliedBy(1L << (attempt - 1)))) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    // Под блокировкой пары, как и проверка в submit: более поздняя операция над парой видит уже возвращённое состояние
+    private void drop(long key, boolean liked) {
+        int filmId = (int) (key >>> 32);
+        int userId = (int) key;
+        dropped.increment();
+
+        boolean[] undone = new boolean[1];
+        pending.compute(key, (k, newer) -> {
+            if (newer != null) {
+                // более поздняя операция вернула пару к состоянию в БД: писать и откатывать нечего
+                freeSlots.release();
+                return null;
+            }
+            dropHandler.undo(filmId, userId, liked);
+            undone[0] = true;
+            return null;
+        });
+        if (undone[0]) {
+            dropHandler.undone(filmId, userId, liked);
+        }
+    }
+
+    private static boolean sleep(Duration pause) {
+        try {
+            Thread.sleep(pause);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static long key(int filmId, int userId) {
+        return ((long) filmId << 32) | (userId & 0xFFFFFFFFL);
+    }
+
+    private static Object[] pair(long key) {
+        return new Object[]{(int) (key >>> 32), (int) key};
+    }
+
+    /**
+     * Откат в памяти операции, которую не удалось записать в БД.
+     */
+    public interface DropHandler {
+        // Под блокировкой пары: вернуть состояние в памяти к записанному в БД
+        void undo(int filmId, int userId, boolean liked);
+
+        // После undo, вне блокировки пары
+        default void undone(int filmId, int userId, boolean liked) {
+        }
+    }
+}
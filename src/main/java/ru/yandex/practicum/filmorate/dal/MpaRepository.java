@@ -13,8 +13,8 @@ public class MpaRepository extends BaseRepository<Mpa> {
     private static final String FIND_ALL_QUERY = "SELECT * FROM mpa ORDER BY id";
     private static final String FIND_BY_ID_QUERY = "SELECT * FROM mpa WHERE id = ?";
 
-    public MpaRepository(JdbcTemplate jdbc, RowMapper<Mpa> mapper) {
-        super(jdbc, mapper);
+    public MpaRepository(JdbcTemplate jdbc, RowMapper<Mpa> mapper, QueryMetrics queryMetrics) {
+        super(jdbc, mapper, queryMetrics);
     }
 
     public List<Mpa> findAll() {
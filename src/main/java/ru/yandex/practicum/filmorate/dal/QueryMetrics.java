@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Метрики SQL-запросов репозиториев, с тегом query — именем константы запроса:
+ * filmorate.db.query — время выполнения с гистограммой (outcome = success | error),
+ * filmorate.db.rows — число прочитанных или изменённых строк,
+ * filmorate.db.errors — число ошибок по типу исключения.
+ */
+@Component
+public class QueryMetrics {
+    static final String UNNAMED_QUERY = "unnamed";
+
+    private final MeterRegistry registry;
+    private final Map<String, QueryMeters> meters = new ConcurrentHashMap<>();
+
+    public QueryMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public <R> R record(String query, Supplier<R> call) {
+        QueryMeters queryMeters = meters.computeIfAbsent(query, this::register);
+        RequestStatements.record(query);
+        long start = System.nanoTime();
+
+        R result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            queryMeters.failure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            Counter.builder("filmorate.db.errors")
+                    .tag("query", query)
+                    .tag("exception", e.getClass().getSimpleName())
+                    .register(registry)
+                    .increment();
+            throw e;
+        }
+
+        queryMeters.success.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        long rows = rowsOf(result);
+        if (rows >= 0) {
+            queryMeters.rows.record(rows);
+        }
+
+        return result;
+    }
+
+    // Имена запросов — строковые константы класса репозитория: текст запроса -> "FilmRepository.FIND_BY_ID_QUERY"
+    static Map<String, String> queryNames(Class<?> repositoryClass) {
+        Map<String, String> names = new HashMap<>();
+
+        for (Field field : repositoryClass.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (field.getType() != String.class || !Modifier.isStatic(modifiers) || !Modifier.isFinal(modifiers)) {
+                continue;
+            }
+
+            try {
+                field.setAccessible(true);
+                names.putIfAbsent((String) field.get(null), repositoryClass.getSimpleName() + "." + field.getName());
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Не удалось прочитать запрос " + field, e);
+            }
+        }
+
+        return Map.copyOf(names);
+    }
+
+    private QueryMeters register(String query) {
+        return new QueryMeters(timer(query, "success"), timer(query, "error"),
+                DistributionSummary.builder("filmorate.db.rows")
+                        .description("Число строк, прочитанных или изменённых запросом")
+                        .tag("query", query)
+                        .register(registry));
+    }
+
+    private Timer timer(String query, String outcome) {
+        return Timer.builder("filmorate.db.query")
+                .description("Время выполнения SQL-запроса")
+                .tag("query", query)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(100_000))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(registry);
+    }
+
+    // Списки и Optional — прочитанные строки, числа — изменённые; -1, если посчитать нельзя
+    private static long rowsOf(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Map<?, ?> map) {
+            return map.size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        if (result instanceof Integer count) {
+            return count;
+        }
+        if (result instanceof int[] counts) {
+            return sum(counts);
+        }
+        if (result instanceof int[][] batches) {
+            long rows = 0;
+            for (int[] counts : batches) {
+                rows += sum(counts);
+            }
+            return rows;
+        }
+
+        return -1;
+    }
+
+    // В пакетах драйвер может вернуть SUCCESS_NO_INFO (-2) вместо числа строк
+    private static long sum(int[] counts) {
+        long rows = 0;
+        for (int count : counts) {
+            rows += Math.max(count, 0);
+        }
+        return rows;
+    }
+
+    private record QueryMeters(Timer success, Timer failure, DistributionSummary rows) {
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Счётчик SQL-запросов текущего потока, открываемый на время HTTP-запроса или проверки в тесте.
+ * Запросы учитываются по имени константы (см. {@link QueryMetrics}): одинаковый запрос,
+ * выполненный много раз за один HTTP-запрос, — признак N+1, где меняются только параметры.
+ * Вложенная область при закрытии добавляет свои запросы во внешнюю.
+ */
+public final class RequestStatements implements AutoCloseable {
+    private static final ThreadLocal<RequestStatements> CURRENT = new ThreadLocal<>();
+
+    private final RequestStatements parent;
+    private final Map<String, Integer> counts = new HashMap<>();
+    private int total;
+
+    private RequestStatements(RequestStatements parent) {
+        this.parent = parent;
+    }
+
+    public static RequestStatements open() {
+        RequestStatements statements = new RequestStatements(CURRENT.get());
+        CURRENT.set(statements);
+        return statements;
+    }
+
+    // Вне открытой области (фоновые задачи, потоковые ответы) запросы не считаются
+    static void record(String query) {
+        RequestStatements statements = CURRENT.get();
+        if (statements != null) {
+            statements.add(query, 1);
+        }
+    }
+
+    public int total() {
+        return total;
+    }
+
+    // Запросы, выполненные не меньше threshold раз, по убыванию числа выполнений
+    public Map<String, Integer> repeated(int threshold) {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .filter(entry -> entry.getValue() >= threshold)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .forEach(entry -> repeated.put(entry.getKey(), entry.getValue()));
+        return repeated;
+    }
+
+    @Override
+    public void close() {
+        if (parent == null) {
+            CURRENT.remove();
+            return;
+        }
+
+        CURRENT.set(parent);
+        counts.forEach(parent::add);
+    }
+
+    private void add(String query, int times) {
+        counts.merge(query, times, Integer::sum);
+        total += times;
+    }
+}
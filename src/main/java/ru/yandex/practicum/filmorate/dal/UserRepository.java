@@ -1,13 +1,23 @@
 package ru.yandex.practicum.filmorate.dal;
 
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 @Repository
 public class UserRepository extends BaseRepository<User> {
@@ -15,9 +25,27 @@ public class UserRepository extends BaseRepository<User> {
 
     private static final String FIND_BY_ID_QUERY = "SELECT * FROM users WHERE id = ?";
 
+    private static final String FIND_PAGE_QUERY = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String FIND_BY_IDS_QUERY = "SELECT * FROM users WHERE id = ANY(?) ORDER BY id";
+
+    private static final String COUNT_BY_ID_QUERY = "SELECT COUNT(*) FROM users WHERE id = ?";
+
+    private static final String FIND_ALL_IDS = "SELECT id FROM users";
+
+    private static final String FIND_ALL_FRIENDSHIPS = "SELECT user_id, friend_id FROM friendship";
+
+    private static final String EXPORT_QUERY = "SELECT * FROM users ORDER BY id";
+
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
     private static final String INSERT_QUERY = "INSERT INTO users (email, login, name, birthday)" +
             "VALUES (?, ?, ?, ?)";
 
+    private static final String FIND_TAKEN_EMAILS = "SELECT email FROM users WHERE email = ANY(?)";
+
+    private static final String FIND_TAKEN_LOGINS = "SELECT login FROM users WHERE login = ANY(?)";
+
     private static final String UPDATE_QUERY = "UPDATE users SET email = ?, login = ?, name = ?, birthday = ? " +
             "WHERE id = ?";
 
@@ -27,6 +55,8 @@ public class UserRepository extends BaseRepository<User> {
     private static final String DELETE_FRIEND =
             "DELETE FROM friendship WHERE user_id = ? AND friend_id = ?";
 
+    // Друзей и общих друзей сервис берёт из FriendGraph. Эти запросы приложением не используются
+    // и остаются только базой для сравнения в FriendsBenchmark
     private static final String FIND_FRIENDS =
             "SELECT u.* FROM users u " +
                     "JOIN friendship f ON u.id = f.friend_id " +
@@ -38,18 +68,55 @@ public class UserRepository extends BaseRepository<User> {
                     "JOIN friendship f2 ON u.id = f2.friend_id " +
                     "WHERE f1.user_id = ? AND f2.user_id = ?";
 
-    public UserRepository(JdbcTemplate jdbc, RowMapper<User> mapper) {
-        super(jdbc, mapper);
+    public UserRepository(JdbcTemplate jdbc, RowMapper<User> mapper, QueryMetrics queryMetrics) {
+        super(jdbc, mapper, queryMetrics);
     }
 
     public List<User> findAll() {
         return findMany(FIND_ALL_QUERY);
     }
 
+    public CursorPage<User> findPage(int afterId, int limit) {
+        return toPage(findMany(FIND_PAGE_QUERY, afterId, limit + 1), limit, User::getId);
+    }
+
+    public void exportAll(Consumer<User> consumer) {
+        timed(EXPORT_QUERY, () -> {
+            int[] rows = new int[1];
+            jdbc.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(EXPORT_QUERY);
+                ps.setFetchSize(EXPORT_FETCH_SIZE);
+                return ps;
+            }, (RowCallbackHandler) rs -> consumer.accept(mapper.mapRow(rs, ++rows[0])));
+            return rows[0];
+        });
+    }
+
     public Optional<User> findById(Integer userId) {
         return findOne(FIND_BY_ID_QUERY, userId);
     }
 
+    public boolean existsById(int userId) {
+        return exists(COUNT_BY_ID_QUERY, userId);
+    }
+
+    public void forEachId(IntConsumer consumer) {
+        queryEach(FIND_ALL_IDS, rs -> consumer.accept(rs.getInt("id")));
+    }
+
+    public List<User> findByIds(int[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+
+        return findMany(FIND_BY_IDS_QUERY, (Object) Arrays.stream(ids).boxed().toArray(Integer[]::new));
+    }
+
+    // Все пары дружбы (user_id, friend_id)
+    public void forEachFriendship(BiConsumer<Integer, Integer> consumer) {
+        queryEach(FIND_ALL_FRIENDSHIPS, rs -> consumer.accept(rs.getInt("user_id"), rs.getInt("friend_id")));
+    }
+
     public User save(User user) {
         Integer id = insert(
                 INSERT_QUERY,
@@ -65,6 +132,35 @@ public class UserRepository extends BaseRepository<User> {
         return user;
     }
 
+    // Пользователи вставляются пакетами в одной транзакции; id проставляются в переданные объекты
+    @Transactional
+    public List<User> saveAll(List<User> users, int batchSize) {
+        List<Object[]> rows = users.stream()
+                .map(user -> new Object[]{user.getEmail(), user.getLogin(), user.getName(), user.getBirthday()})
+                .toList();
+
+        List<Integer> ids = insertBatch(INSERT_QUERY, rows, batchSize);
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).setId(ids.get(i));
+        }
+
+        return users;
+    }
+
+    // Какие из переданных email уже заняты
+    public Set<String> findTakenEmails(Collection<String> emails) {
+        String[] values = emails.toArray(String[]::new);
+        return new HashSet<>(timed(FIND_TAKEN_EMAILS,
+                () -> jdbc.queryForList(FIND_TAKEN_EMAILS, String.class, (Object) values)));
+    }
+
+    // Какие из переданных логинов уже заняты
+    public Set<String> findTakenLogins(Collection<String> logins) {
+        String[] values = logins.toArray(String[]::new);
+        return new HashSet<>(timed(FIND_TAKEN_LOGINS,
+                () -> jdbc.queryForList(FIND_TAKEN_LOGINS, String.class, (Object) values)));
+    }
+
     public User update(User user) {
         update(
                 UPDATE_QUERY,
@@ -79,30 +175,24 @@ public class UserRepository extends BaseRepository<User> {
     }
 
     public void addFriend(Integer id, Integer friendId) {
-        jdbc.update(INSERT_FRIEND, id, friendId);
+        timed(INSERT_FRIEND, () -> jdbc.update(INSERT_FRIEND, id, friendId));
     }
 
-    public void removeFromFriends(Integer id, Integer friendId) {
-        jdbc.update(DELETE_FRIEND, id, friendId);
+    // false, если такой дружбы не было
+    public boolean removeFromFriends(Integer id, Integer friendId) {
+        return timed(DELETE_FRIEND, () -> jdbc.update(DELETE_FRIEND, id, friendId)) > 0;
     }
 
+    // Только для FriendsBenchmark: в приложении друзья берутся из FriendGraph
     public Set<User> getFriendsToUser(Integer id) {
-        List<User> friends = jdbc.query(
-                FIND_FRIENDS,
-                mapper,
-                id
-        );
+        List<User> friends = findMany(FIND_FRIENDS, id);
 
         return Set.copyOf(friends);
     }
 
+    // Только для FriendsBenchmark: в приложении общие друзья берутся из FriendGraph
     public Set<User> getFriendsCommonOtherFriend(Integer id, Integer friendId) {
-        List<User> commonFriends = jdbc.query(
-                FIND_COMMON_FRIENDS,
-                mapper,
-                id,
-                friendId
-        );
+        List<User> commonFriends = findMany(FIND_COMMON_FRIENDS, id, friendId);
 
         return Set.copyOf(commonFriends);
     }
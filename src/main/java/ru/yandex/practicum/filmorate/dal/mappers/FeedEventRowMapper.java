@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.dal.mappers;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+
+@Component
+public class FeedEventRowMapper implements RowMapper<FeedEvent> {
+    @Override
+    public FeedEvent mapRow(ResultSet resultSet, int rowNum) throws SQLException {
+        FeedEvent event = new FeedEvent();
+        event.setEventId(resultSet.getInt("id"));
+        event.setUserId(resultSet.getInt("user_id"));
+        event.setEventType(FeedEvent.Type.valueOf(resultSet.getString("event_type")));
+        event.setOperation(FeedEvent.Operation.valueOf(resultSet.getString("operation")));
+        event.setEntityId(resultSet.getInt("entity_id"));
+        event.setTimestamp(resultSet.getObject("created_at", OffsetDateTime.class).toInstant());
+
+        return event;
+    }
+}
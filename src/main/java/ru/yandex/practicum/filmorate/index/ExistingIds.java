@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.FilmRepository;
+import ru.yandex.practicum.filmorate.dal.UserRepository;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * id существующих пользователей и фильмов в сжатых битовых картах: проверка существования
+ * на путях записи обходится без загрузки строки из БД.
+ *
+ * <p>Пользователи и фильмы не удаляются, поэтому найденный в памяти id существует наверняка.
+ * Отсутствующий id перепроверяется запросом COUNT(*): так не теряются строки, вставленные
+ * во время загрузки карты или в обход сервисов, а найденный в БД id добавляется в карту.
+ */
+@Slf4j
+@Component
+public class ExistingIds {
+    private final UserRepository userRepository;
+    private final FilmRepository filmRepository;
+    private final IdSet users = new IdSet();
+    private final IdSet films = new IdSet();
+
+    public ExistingIds(UserRepository userRepository, FilmRepository filmRepository) {
+        this.userRepository = userRepository;
+        this.filmRepository = filmRepository;
+    }
+
+    @PostConstruct
+    public void reload() {
+        users.reload(userRepository::forEachId);
+        films.reload(filmRepository::forEachId);
+        log.info("Загружены id: пользователей = {}, фильмов = {}", users.size(), films.size());
+    }
+
+    public boolean userExists(Integer userId) {
+        return userId != null && users.contains(userId, userRepository::existsById);
+    }
+
+    public boolean filmExists(Integer filmId) {
+        return filmId != null && films.contains(filmId, filmRepository::existsById);
+    }
+
+    public void addUser(int userId) {
+        users.add(userId);
+    }
+
+    public void addFilm(int filmId) {
+        films.add(filmId);
+    }
+
+    private static final class IdSet {
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private RoaringBitmap ids = new RoaringBitmap();
+
+        // id, добавленные во время загрузки, могут не попасть в новую карту — их найдёт запрос в БД
+        void reload(Consumer<IntConsumer> loader) {
+            RoaringBitmap loaded = new RoaringBitmap();
+            loader.accept(loaded::add);
+            loaded.runOptimize();
+
+            lock.writeLock().lock();
+            try {
+                ids = loaded;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        boolean contains(int id, IntPredicate existsInDatabase) {
+            lock.readLock().lock();
+            try {
+                if (ids.contains(id)) {
+                    return true;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            if (!existsInDatabase.test(id)) {
+                return false;
+            }
+            add(id);
+            return true;
+        }
+
+        void add(int id) {
+            lock.writeLock().lock();
+            try {
+                ids.add(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return ids.getCardinality();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.FilmRepository;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Фасетный индекс фильмов: сжатые битовые карты id фильмов по жанру, MPA и году выхода.
+ * Фильтры пересекаются в памяти, из БД затем загружаются только фильмы нужной страницы.
+ * Строится при старте и обновляется при записи фильмов; чтение идёт под разделяемой блокировкой.
+ */
+@Slf4j
+@Component
+public class FilmFacetIndex {
+    private static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+    private final FilmRepository filmRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Facets facets = new Facets();
+
+    public FilmFacetIndex(FilmRepository filmRepository) {
+        this.filmRepository = filmRepository;
+    }
+
+    @PostConstruct
+    public void reload() {
+        Facets loaded = new Facets();
+        filmRepository.exportAll(film -> loaded.add(film, true));
+        loaded.optimize();
+
+        lock.writeLock().lock();
+        try {
+            facets = loaded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Фасетный индекс фильмов построен: фильмов = {}", loaded.all.getCardinality());
+    }
+
+    public void add(Film film) {
+        lock.writeLock().lock();
+        try {
+            facets.add(film, true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Прежние значения фильма не нужны: id снимается со всех карт фасета. Жанры меняются, только если
+    // обновление их заменило
+    public void update(Film updated, boolean genresReplaced) {
+        lock.writeLock().lock();
+        try {
+            facets.remove(updated.getId(), genresReplaced);
+            facets.add(updated, genresReplaced);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Фильмы, у которых есть все жанры из genreIds, любой из рейтингов mpaIds и год выхода
+     * в [yearFrom, yearTo]; пустые и null-параметры не ограничивают выборку.
+     */
+    public Selection select(Collection<Long> genreIds, Collection<Long> mpaIds, Integer yearFrom, Integer yearTo) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap films = facets.all.clone();
+            if (genreIds != null) {
+                for (Long genreId : genreIds) {
+                    films.and(facets.byGenre.getOrDefault(genreId, EMPTY));
+                }
+            }
+            if (mpaIds != null && !mpaIds.isEmpty()) {
+                films.and(union(mpaIds.stream().map(id -> facets.byMpa.getOrDefault(id, EMPTY)).toList()));
+            }
+            if (yearFrom != null || yearTo != null) {
+                NavigableMap<Integer, RoaringBitmap> years = facets.byYear.subMap(
+                        yearFrom == null ? Integer.MIN_VALUE : yearFrom, true,
+                        yearTo == null ? Integer.MAX_VALUE : yearTo, true);
+                films.and(union(years.values()));
+            }
+
+            return new Selection(films, counts(films, facets.byGenre), counts(films, facets.byMpa),
+                    counts(films, facets.byYear));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static RoaringBitmap union(Collection<RoaringBitmap> bitmaps) {
+        return bitmaps.isEmpty() ? new RoaringBitmap() : FastAggregation.or(bitmaps.iterator());
+    }
+
+    // Число отобранных фильмов в каждом значении фасета, без нулевых
+    private static <K extends Comparable<K>> SortedMap<K, Integer> counts(RoaringBitmap films,
+                                                                           Map<K, RoaringBitmap> facet) {
+        SortedMap<K, Integer> counts = new TreeMap<>();
+        facet.forEach((value, bitmap) -> {
+            int count = RoaringBitmap.andCardinality(films, bitmap);
+            if (count > 0) {
+                counts.put(value, count);
+            }
+        });
+        return counts;
+    }
+
+    /**
+     * Результат фильтрации: отобранные фильмы и число фильмов по жанрам, MPA и годам среди них.
+     */
+    public record Selection(RoaringBitmap films, SortedMap<Long, Integer> genres, SortedMap<Long, Integer> mpa,
+                            SortedMap<Integer, Integer> years) {
+
+        public int total() {
+            return films.getCardinality();
+        }
+
+        public boolean contains(int filmId) {
+            return films.contains(filmId);
+        }
+
+        // Не больше limit id по возрастанию, начиная с первого id больше after
+        public List<Integer> idsAfter(int after, int limit) {
+            List<Integer> ids = new ArrayList<>(Math.min(limit, total()));
+            PeekableIntIterator iterator = films.getIntIterator();
+            iterator.advanceIfNeeded(after + 1);
+            while (iterator.hasNext() && ids.size() < limit) {
+                ids.add(iterator.next());
+            }
+            return ids;
+        }
+    }
+
+    private static final class Facets {
+        private final RoaringBitmap all = new RoaringBitmap();
+        private final Map<Long, RoaringBitmap> byGenre = new HashMap<>();
+        private final Map<Long, RoaringBitmap> byMpa = new HashMap<>();
+        private final NavigableMap<Integer, RoaringBitmap> byYear = new TreeMap<>();
+
+        void add(Film film, boolean withGenres) {
+            int filmId = film.getId();
+            all.add(filmId);
+            if (film.getMpa() != null && film.getMpa().getId() != null) {
+                byMpa.computeIfAbsent(film.getMpa().getId(), id -> new RoaringBitmap()).add(filmId);
+            }
+            if (film.getReleaseDate() != null) {
+                byYear.computeIfAbsent(film.getReleaseDate().getYear(), year -> new RoaringBitmap()).add(filmId);
+            }
+            if (withGenres && film.getGenres() != null) {
+                for (Genre genre : film.getGenres()) {
+                    byGenre.computeIfAbsent(genre.getId(), id -> new RoaringBitmap()).add(filmId);
+                }
+            }
+        }
+
+        void remove(int filmId, boolean withGenres) {
+            byMpa.values().forEach(bitmap -> bitmap.remove(filmId));
+            byYear.values().forEach(bitmap -> bitmap.remove(filmId));
+            if (withGenres) {
+                byGenre.values().forEach(bitmap -> bitmap.remove(filmId));
+            }
+        }
+
+        void optimize() {
+            all.runOptimize();
+            byGenre.values().forEach(RoaringBitmap::runOptimize);
+            byMpa.values().forEach(RoaringBitmap::runOptimize);
+            byYear.values().forEach(RoaringBitmap::runOptimize);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Коллаборативная фильтрация по лайкам: находит пользователей с наибольшим числом
+ * общих лайков и предлагает фильмы, которые понравились им, но ещё не оценены
+ * пользователем; вес фильма — сумма пересечений соседей, которые его лайкнули.
+ *
+ * <p>Пересечения с кандидатами считаются параллельно в отдельном {@link ForkJoinPool},
+ * чтобы тяжёлый запрос не занимал общий пул.
+ */
+@Component
+public class FilmRecommender {
+    private final LikesMatrix likesMatrix;
+    private final int maxCandidates;
+    private final int neighbours;
+    private final ForkJoinPool scoringPool;
+
+    public FilmRecommender(LikesMatrix likesMatrix,
+                           @Value("${filmorate.recommendations.films.max-candidates:100000}") int maxCandidates,
+                           @Value("${filmorate.recommendations.films.neighbours:50}") int neighbours,
+                           @Value("${filmorate.recommendations.films.parallelism:4}") int parallelism) {
+        this.likesMatrix = likesMatrix;
+        this.maxCandidates = maxCandidates;
+        this.neighbours = neighbours;
+        this.scoringPool = new ForkJoinPool(parallelism);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scoringPool.shutdown();
+    }
+
+    public int[] recommend(int userId, int limit) {
+        int[] liked = likesMatrix.filmsLikedBy(userId);
+        if (liked.length == 0 || limit <= 0) {
+            return new int[0];
+        }
+
+        int[] candidates = candidateUsers(userId, liked);
+        int[] overlaps = new int[candidates.length];
+
+        scoringPool.submit(() -> IntStream.range(0, candidates.length)
+                .parallel()
+                .forEach(i -> overlaps[i] = SortedIntRows.intersectionSize(
+                        liked, likesMatrix.filmsLikedBy(candidates[i])))
+        ).join();
+
+        long[] similar = topKeys(candidates, overlaps, neighbours);
+
+        Map<Integer, Long> filmScores = new HashMap<>();
+        for (long key : similar) {
+            int neighbour = Integer.MAX_VALUE - (int) (key & 0xFFFFFFFFL);
+            long overlap = key >>> 32;
+            for (int filmId : likesMatrix.filmsLikedBy(neighbour)) {
+                if (Arrays.binarySearch(liked, filmId) < 0) {
+                    filmScores.merge(filmId, overlap, Long::sum);
+                }
+            }
+        }
+
+        int[] films = new int[filmScores.size()];
+        int[] scores = new int[filmScores.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Long> entry : filmScores.entrySet()) {
+            films[i] = entry.getKey();
+            scores[i] = (int) Math.min(Integer.MAX_VALUE, entry.getValue());
+            i++;
+        }
+
+        long[] best = topKeys(films, scores, limit);
+        int[] result = new int[best.length];
+        for (int position = 0; position < best.length; position++) {
+            result[position] = Integer.MAX_VALUE - (int) (best[position] & 0xFFFFFFFFL);
+        }
+
+        return result;
+    }
+
+    // Все, кто лайкал те же фильмы, без повторов; обход ограничен maxCandidates
+    private int[] candidateUsers(int userId, int[] liked) {
+        int[] buffer = new int[Math.min(maxCandidates, 1024)];
+        int size = 0;
+
+        expansion:
+        for (int filmId : liked) {
+            for (int otherUser : likesMatrix.usersWhoLiked(filmId)) {
+                if (size == maxCandidates) {
+                    break expansion;
+                }
+                if (otherUser == userId) {
+                    continue;
+                }
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, Math.min(maxCandidates, size * 2));
+                }
+                buffer[size++] = otherUser;
+            }
+        }
+
+        int[] sorted = Arrays.copyOf(buffer, size);
+        Arrays.sort(sorted);
+        return Arrays.stream(sorted).distinct().toArray();
+    }
+
+    // Ключ = вес в старших битах, инвертированный id в младших; результат по убыванию ключа
+    private static long[] topKeys(int[] ids, int[] weights, int limit) {
+        long[] keys = new long[ids.length];
+        int size = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (weights[i] > 0) {
+                keys[size++] = ((long) weights[i] << 32) | (Integer.MAX_VALUE - ids[i]);
+            }
+        }
+
+        Arrays.sort(keys, 0, size);
+        int resultSize = Math.min(limit, size);
+        long[] result = new long[resultSize];
+        for (int i = 0; i < resultSize; i++) {
+            result[i] = keys[size - 1 - i];
+        }
+
+        return result;
+    }
+}
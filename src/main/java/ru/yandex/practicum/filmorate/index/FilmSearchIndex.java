@@ -0,0 +1,398 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.FilmRepository;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Инвертированный индекс по названию и описанию фильмов для поиска по мере набора.
+ * Слова — последовательности букв и цифр (кириллица и латиница) в нижнем регистре, «ё» приравнена к «е».
+ * Каждое слово запроса ищется как префикс (кроме однобуквенных — они должны совпасть целиком),
+ * фильм должен содержать все слова запроса.
+ *
+ * <p>Вес слова в фильме: 3 за совпадение в названии, 1 — в описании, вдвое больше при полном совпадении
+ * слова; из нескольких слов индекса с одним префиксом берётся лучшее. Фильмы упорядочены по сумме весов,
+ * при равенстве — по id.
+ *
+ * <p>Списки фильмов по словам хранятся отсортированными массивами: новые фильмы получают наибольший id
+ * и дописываются в конец без копирования. Поиск идёт под разделяемой блокировкой, изменения — под эксклюзивной.
+ *
+ * <p>Индекс хранит последние проиндексированные название и описание каждого фильма и при изменении
+ * снимает слова именно их, под той же эксклюзивной блокировкой: одновременные изменения одного фильма
+ * не оставляют в индексе слов прежних текстов. Тексты занимают до ~0,5 КБ на фильм.
+ */
+@Slf4j
+@Component
+public class FilmSearchIndex {
+    private static final int NAME = 1;
+    private static final int DESCRIPTION = 2;
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    // примерная цена двоичного поиска одного кандидата относительно прохода по одному элементу списка
+    private static final int PROBE_COST = 20;
+    // Массивы поиска занимают по 8 байт на фильм; в пуле держится не больше, чем поисков может идти
+    // одновременно на всех ядрах, лишние после всплеска достаются сборщику мусора
+    private static final int MAX_POOLED_SCRATCHES = Runtime.getRuntime().availableProcessors();
+
+    private final FilmRepository filmRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Queue<Scratch> scratchPool = new ArrayBlockingQueue<>(MAX_POOLED_SCRATCHES);
+    private NavigableMap<String, Postings> terms = new TreeMap<>();
+    private Map<Integer, Text> texts = new HashMap<>();
+    private int maxFilmId;
+
+    public FilmSearchIndex(FilmRepository filmRepository) {
+        this.filmRepository = filmRepository;
+    }
+
+    @PostConstruct
+    public void reload() {
+        NavigableMap<String, Postings> loaded = new TreeMap<>();
+        Map<Integer, Text> loadedTexts = new HashMap<>();
+        int[] loadedMaxId = new int[1];
+        filmRepository.forEachText(film -> {
+            Text text = Text.of(film);
+            index(loaded, film.getId(), text, true);
+            loadedTexts.put(film.getId(), text);
+            loadedMaxId[0] = Math.max(loadedMaxId[0], film.getId());
+        });
+
+        lock.writeLock().lock();
+        try {
+            terms = loaded;
+            texts = loadedTexts;
+            maxFilmId = loadedMaxId[0];
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Поисковый индекс фильмов построен: слов = {}", loaded.size());
+    }
+
+    public void add(Film film) {
+        update(film);
+    }
+
+    public void update(Film film) {
+        Text text = Text.of(film);
+        lock.writeLock().lock();
+        try {
+            Text previous = texts.put(film.getId(), text);
+            if (previous != null) {
+                index(terms, film.getId(), previous, false);
+            }
+            index(terms, film.getId(), text, true);
+            maxFilmId = Math.max(maxFilmId, film.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // id не больше limit фильмов в порядке убывания релевантности
+    public List<Integer> search(String query, int limit) {
+        List<String> queryTerms = List.copyOf(new LinkedHashSet<>(tokenize(query)));
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<List<Match>> matches = new ArrayList<>(queryTerms.size());
+            for (String queryTerm : queryTerms) {
+                List<Match> termMatches = matches(queryTerm);
+                if (termMatches.isEmpty()) {
+                    return List.of();
+                }
+                matches.add(termMatches);
+            }
+
+            // начинаем с самого редкого слова, остальные только проверяются у уже найденных фильмов
+            matches.sort(Comparator.comparingLong(FilmSearchIndex::postingsSize));
+
+            Scratch scratch = borrowScratch();
+            try {
+                score(matches, scratch);
+                return top(scratch, limit);
+            } finally {
+                scratch.clear();
+                scratchPool.offer(scratch);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return List.of();
+        }
+
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+
+        return tokens;
+    }
+
+    private static void index(NavigableMap<String, Postings> terms, int filmId, Text text, boolean add) {
+        index(terms, filmId, text.name(), NAME, add);
+        index(terms, filmId, text.description(), DESCRIPTION, add);
+    }
+
+    private static void index(NavigableMap<String, Postings> terms, int filmId, String text, int field, boolean add) {
+        for (String token : new LinkedHashSet<>(tokenize(text))) {
+            if (add) {
+                terms.computeIfAbsent(token, t -> new Postings()).add(filmId, field);
+            } else {
+                Postings postings = terms.get(token);
+                if (postings != null && postings.remove(filmId, field)) {
+                    terms.remove(token);
+                }
+            }
+        }
+    }
+
+    private List<Match> matches(String queryTerm) {
+        if (queryTerm.length() < MIN_PREFIX_LENGTH) {
+            Postings exact = terms.get(queryTerm);
+            return exact == null ? List.of() : List.of(new Match(exact, true));
+        }
+
+        List<Match> matches = new ArrayList<>();
+        terms.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, false)
+                .forEach((term, postings) -> matches.add(new Match(postings, term.equals(queryTerm))));
+        return matches;
+    }
+
+    private Scratch borrowScratch() {
+        Scratch scratch = scratchPool.poll();
+        if (scratch == null) {
+            scratch = new Scratch();
+        }
+        scratch.ensureCapacity(maxFilmId + 1);
+        return scratch;
+    }
+
+    // Суммы весов копятся в массивах по id фильма, без упаковки id в объекты
+    private static void score(List<List<Match>> matches, Scratch scratch) {
+        int[] totals = scratch.totals;
+        for (Match match : matches.getFirst()) {
+            Postings postings = match.postings();
+            for (int i = 0; i < postings.size; i++) {
+                int filmId = postings.films[i];
+                if (totals[filmId] == 0) {
+                    scratch.addCandidate(filmId);
+                }
+                totals[filmId] = Math.max(totals[filmId], weight(postings.fields[i], match.exact()));
+            }
+        }
+
+        for (List<Match> termMatches : matches.subList(1, matches.size())) {
+            // частое слово дешевле пройти целиком, редкое — проверить двоичным поиском у каждого кандидата
+            if (postingsSize(termMatches) <= (long) scratch.candidateCount * termMatches.size() * PROBE_COST) {
+                scanTerm(termMatches, scratch);
+            } else {
+                probeTerm(termMatches, scratch);
+            }
+        }
+    }
+
+    private static void scanTerm(List<Match> termMatches, Scratch scratch) {
+        int[] totals = scratch.totals;
+        int[] termBest = scratch.termBest;
+        for (Match match : termMatches) {
+            Postings postings = match.postings();
+            for (int i = 0; i < postings.size; i++) {
+                int filmId = postings.films[i];
+                if (totals[filmId] > 0) {
+                    termBest[filmId] = Math.max(termBest[filmId], weight(postings.fields[i], match.exact()));
+                }
+            }
+        }
+
+        scratch.retainCandidates(filmId -> {
+            int best = termBest[filmId];
+            termBest[filmId] = 0;
+            return best;
+        });
+    }
+
+    private static void probeTerm(List<Match> termMatches, Scratch scratch) {
+        scratch.retainCandidates(filmId -> {
+            int best = 0;
+            for (Match match : termMatches) {
+                best = Math.max(best, weight(match.postings().fieldsOf(filmId), match.exact()));
+            }
+            return best;
+        });
+    }
+
+    private static int weight(int fields, boolean exact) {
+        int weight = ((fields & NAME) != 0 ? 3 : 0) + ((fields & DESCRIPTION) != 0 ? 1 : 0);
+        return exact ? weight * 2 : weight;
+    }
+
+    private static long postingsSize(List<Match> matches) {
+        long size = 0;
+        for (Match match : matches) {
+            size += match.postings().size;
+        }
+        return size;
+    }
+
+    // Частичная сортировка: в куче держится только limit лучших; ключ — вес, затем меньший id
+    private static List<Integer> top(Scratch scratch, int limit) {
+        PriorityQueue<Long> best = new PriorityQueue<>();
+        for (int i = 0; i < scratch.candidateCount; i++) {
+            int filmId = scratch.candidates[i];
+            long key = ((long) scratch.totals[filmId] << 32) | (Integer.MAX_VALUE - filmId);
+            if (best.size() < limit) {
+                best.add(key);
+            } else if (key > best.peek()) {
+                best.poll();
+                best.add(key);
+            }
+        }
+
+        List<Long> ranked = new ArrayList<>(best);
+        ranked.sort(Comparator.reverseOrder());
+        return ranked.stream().map(key -> Integer.MAX_VALUE - (int) (key & Integer.MAX_VALUE)).toList();
+    }
+
+    private record Match(Postings postings, boolean exact) {
+    }
+
+    private record Text(String name, String description) {
+        static Text of(Film film) {
+            return new Text(film.getName(), film.getDescription());
+        }
+    }
+
+    /**
+     * Рабочие массивы одного поиска, индексированные по id фильма. Берутся из пула ограниченного размера
+     * и возвращаются обнулёнными, так что поиск не выделяет память под каждый фильм-кандидат.
+     */
+    private static final class Scratch {
+        private int[] totals = new int[0];
+        private int[] termBest = new int[0];
+        private int[] candidates = new int[64];
+        private int candidateCount;
+
+        void ensureCapacity(int size) {
+            if (totals.length < size) {
+                int capacity = Math.max(size, totals.length + (totals.length >> 1));
+                totals = new int[capacity];
+                termBest = new int[capacity];
+            }
+        }
+
+        void addCandidate(int filmId) {
+            if (candidateCount == candidates.length) {
+                candidates = Arrays.copyOf(candidates, candidateCount * 2);
+            }
+            candidates[candidateCount++] = filmId;
+        }
+
+        // Оставляет кандидатов с ненулевым весом слова и прибавляет его к сумме
+        void retainCandidates(IntUnaryOperator termWeight) {
+            int kept = 0;
+            for (int i = 0; i < candidateCount; i++) {
+                int filmId = candidates[i];
+                int weight = termWeight.applyAsInt(filmId);
+                if (weight == 0) {
+                    totals[filmId] = 0;
+                } else {
+                    totals[filmId] += weight;
+                    candidates[kept++] = filmId;
+                }
+            }
+            candidateCount = kept;
+        }
+
+        void clear() {
+            for (int i = 0; i < candidateCount; i++) {
+                totals[candidates[i]] = 0;
+            }
+            candidateCount = 0;
+        }
+    }
+
+    // Отсортированные id фильмов со словом и битовые маски полей, где оно встречается
+    private static final class Postings {
+        private int[] films = new int[2];
+        private byte[] fields = new byte[2];
+        private int size;
+
+        void add(int filmId, int field) {
+            // новые фильмы дописываются в конец без двоичного поиска
+            int position = size > 0 && films[size - 1] < filmId
+                    ? -size - 1
+                    : Arrays.binarySearch(films, 0, size, filmId);
+            if (position >= 0) {
+                fields[position] |= (byte) field;
+                return;
+            }
+
+            if (size == films.length) {
+                films = Arrays.copyOf(films, size * 2);
+                fields = Arrays.copyOf(fields, size * 2);
+            }
+
+            int insertAt = -position - 1;
+            System.arraycopy(films, insertAt, films, insertAt + 1, size - insertAt);
+            System.arraycopy(fields, insertAt, fields, insertAt + 1, size - insertAt);
+            films[insertAt] = filmId;
+            fields[insertAt] = (byte) field;
+            size++;
+        }
+
+        // true, если слово больше не встречается ни в одном фильме
+        boolean remove(int filmId, int field) {
+            int position = Arrays.binarySearch(films, 0, size, filmId);
+            if (position < 0) {
+                return size == 0;
+            }
+
+            fields[position] &= (byte) ~field;
+            if (fields[position] == 0) {
+                System.arraycopy(films, position + 1, films, position, size - position - 1);
+                System.arraycopy(fields, position + 1, fields, position, size - position - 1);
+                size--;
+            }
+
+            return size == 0;
+        }
+
+        int fieldsOf(int filmId) {
+            int position = Arrays.binarySearch(films, 0, size, filmId);
+            return position >= 0 ? fields[position] : 0;
+        }
+    }
+}
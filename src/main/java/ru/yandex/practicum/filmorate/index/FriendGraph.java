@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.UserRepository;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Граф дружбы в памяти. Для каждого пользователя хранится отсортированный массив
+ * id друзей {@code int[]}, строки индексируются id пользователя.
+ *
+ * <p>Память: 4 байта на ребро плюс 16 байт заголовка массива на пользователя, у которого
+ * есть друзья, и 4 байта ссылки (compressed oops) на каждый id в таблице строк.
+ * Для сравнения, {@code HashSet<Integer>} тратит около 50 байт на ребро.
+ * При 1М пользователей и 100 друзьях у каждого граф занимает ~420 МБ против ~5 ГБ.
+ *
+ * <p>Чтение идёт без блокировок, возвращаемые массивы изменять нельзя. Версия растёт после
+ * каждого изменения графа.
+ */
+@Component
+public class FriendGraph {
+    private final UserRepository userRepository;
+    private final SortedIntRows adjacency = new SortedIntRows();
+    private final AtomicLong version = new AtomicLong();
+
+    public FriendGraph(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @PostConstruct
+    public void reload() {
+        SortedIntRows.Builder builder = new SortedIntRows.Builder();
+        userRepository.forEachFriendship(builder::add);
+
+        adjacency.replaceWith(builder.build());
+        version.incrementAndGet();
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    public int[] friendsOf(int userId) {
+        return adjacency.get(userId);
+    }
+
+    public boolean areFriends(int userId, int friendId) {
+        return adjacency.contains(userId, friendId);
+    }
+
+    public int[] commonFriends(int userId, int otherId) {
+        return SortedIntRows.intersect(friendsOf(userId), friendsOf(otherId));
+    }
+
+    public void addFriend(int userId, int friendId) {
+        adjacency.add(userId, friendId);
+        version.incrementAndGet();
+    }
+
+    public void removeFriend(int userId, int friendId) {
+        adjacency.remove(userId, friendId);
+        version.incrementAndGet();
+    }
+}
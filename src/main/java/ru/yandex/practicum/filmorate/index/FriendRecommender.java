@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Рекомендации «возможно, вы знакомы»: пользователи, которые есть в друзьях у друзей,
+ * но ещё не в друзьях у самого пользователя, по убыванию числа общих друзей.
+ *
+ * <p>Обход второго уровня графа ограничен {@code maxExpansion} вершинами, поэтому время
+ * ответа не зависит от размера окружения: кандидаты собираются в {@code int[]},
+ * сортируются и считаются серийным проходом, лучшие отбираются кучей размера limit.
+ */
+@Component
+public class FriendRecommender {
+    private final FriendGraph friendGraph;
+    private final int maxExpansion;
+
+    public FriendRecommender(FriendGraph friendGraph,
+                             @Value("${filmorate.recommendations.friends.max-expansion:50000}") int maxExpansion) {
+        this.friendGraph = friendGraph;
+        this.maxExpansion = maxExpansion;
+    }
+
+    public int[] recommend(int userId, int limit) {
+        int[] friends = friendGraph.friendsOf(userId);
+        int[] candidates = new int[Math.min(maxExpansion, 1024)];
+        int size = 0;
+
+        expansion:
+        for (int friendId : friends) {
+            for (int candidate : friendGraph.friendsOf(friendId)) {
+                if (size == maxExpansion) {
+                    break expansion;
+                }
+                if (candidate == userId) {
+                    continue;
+                }
+                if (size == candidates.length) {
+                    candidates = Arrays.copyOf(candidates, Math.min(maxExpansion, size * 2));
+                }
+                candidates[size++] = candidate;
+            }
+        }
+
+        Arrays.sort(candidates, 0, size);
+
+        // ключ = число общих друзей в старших битах, инвертированный id в младших:
+        // больший ключ — лучший кандидат, при равенстве выигрывает меньший id
+        PriorityQueue<Long> best = new PriorityQueue<>(limit + 1);
+        int i = 0;
+        while (i < size) {
+            int candidate = candidates[i];
+            int mutual = 0;
+            while (i < size && candidates[i] == candidate) {
+                mutual++;
+                i++;
+            }
+            if (Arrays.binarySearch(friends, candidate) >= 0) {
+                continue;
+            }
+
+            long key = ((long) mutual << 32) | (Integer.MAX_VALUE - candidate);
+            if (best.size() < limit) {
+                best.add(key);
+            } else if (limit > 0 && key > best.peek()) {
+                best.poll();
+                best.add(key);
+            }
+        }
+
+        int[] result = new int[best.size()];
+        for (int position = result.length - 1; position >= 0; position--) {
+            result[position] = Integer.MAX_VALUE - (int) (best.poll() & 0xFFFFFFFFL);
+        }
+
+        return result;
+    }
+}
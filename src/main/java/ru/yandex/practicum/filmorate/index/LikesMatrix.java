@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.FilmRepository;
+
+/**
+ * Разреженная матрица пользователь × фильм из таблицы likes, хранится в обе стороны:
+ * отсортированные id фильмов по пользователю и id пользователей по фильму.
+ * Строится при старте и обновляется на каждый лайк.
+ */
+@Component
+public class LikesMatrix {
+    private final FilmRepository filmRepository;
+    private final SortedIntRows filmsByUser = new SortedIntRows();
+    private final SortedIntRows usersByFilm = new SortedIntRows();
+
+    public LikesMatrix(FilmRepository filmRepository) {
+        this.filmRepository = filmRepository;
+    }
+
+    @PostConstruct
+    public void reload() {
+        SortedIntRows.Builder byUser = new SortedIntRows.Builder();
+        SortedIntRows.Builder byFilm = new SortedIntRows.Builder();
+
+        filmRepository.forEachLike((userId, filmId) -> {
+            byUser.add(userId, filmId);
+            byFilm.add(filmId, userId);
+        });
+
+        filmsByUser.replaceWith(byUser.build());
+        usersByFilm.replaceWith(byFilm.build());
+    }
+
+    public int[] filmsLikedBy(int userId) {
+        return filmsByUser.get(userId);
+    }
+
+    public int[] usersWhoLiked(int filmId) {
+        return usersByFilm.get(filmId);
+    }
+
+    // Возвращает true, если лайка ещё не было
+    public boolean like(int userId, int filmId) {
+        boolean added = filmsByUser.add(userId, filmId);
+        if (added) {
+            usersByFilm.add(filmId, userId);
+        }
+
+        return added;
+    }
+
+    // Возвращает true, если лайк был
+    public boolean unlike(int userId, int filmId) {
+        boolean removed = filmsByUser.remove(userId, filmId);
+        if (removed) {
+            usersByFilm.remove(filmId, userId);
+        }
+
+        return removed;
+    }
+}
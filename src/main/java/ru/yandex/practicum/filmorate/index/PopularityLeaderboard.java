@@ -0,0 +1,161 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.FilmRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * Рейтинг фильмов по числу лайков (при равенстве — по id), который держится в памяти.
+ * Строится из films.likes_count при старте и обновляется на каждый лайк,
+ * так что топ фильмов отдаётся без SQL. Расхождения, найденные сверкой счётчиков, приходят
+ * сюда теми же изменениями на дельту.
+ *
+ * <p>Изменения берут эксклюзивную блокировку: перестановка записи (удаление и вставка в список)
+ * занимает микросекунды. Чтение топа берёт разделяемую: читатели не ждут друг друга, а обход не застаёт
+ * фильм посреди перестановки и не может его пропустить или задвоить. Обход всегда короткий:
+ * небольшую выборку фасетного фильтра ранжирует куча, а не обход всего рейтинга.
+ */
+@Component
+public class PopularityLeaderboard {
+    private static final Comparator<Entry> RANKING_ORDER = Comparator
+            .comparingLong(Entry::likes).reversed()
+            .thenComparingInt(Entry::filmId);
+
+    private final FilmRepository filmRepository;
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(RANKING_ORDER);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong version = new AtomicLong();
+
+    public PopularityLeaderboard(FilmRepository filmRepository) {
+        this.filmRepository = filmRepository;
+    }
+
+    // Изменения ждут до конца загрузки: иначе прочитанные из БД счётчики затёрли бы их
+    @PostConstruct
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            Map<Integer, Long> likesCounts = filmRepository.findLikesCounts();
+            likesCounts.forEach((filmId, likes) ->
+                    entries.compute(filmId, (id, old) -> replace(old, new Entry(id, likes)))
+            );
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addFilm(int filmId) {
+        lock.writeLock().lock();
+        try {
+            entries.computeIfAbsent(filmId, id -> replace(null, new Entry(id, 0)));
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void changeLikes(int filmId, long delta) {
+        lock.writeLock().lock();
+        try {
+            entries.compute(filmId, (id, old) -> replace(old, new Entry(id, (old == null ? 0 : old.likes()) + delta)));
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Растёт при каждом изменении рейтинга: по ней видно, изменилось ли что-нибудь с прошлого чтения
+    public long version() {
+        return version.get();
+    }
+
+    public long likesOf(int filmId) {
+        Entry entry = entries.get(filmId);
+        return entry == null ? 0 : entry.likes();
+    }
+
+    public List<Integer> top(int count) {
+        return top(count, filmId -> true, null);
+    }
+
+    public List<Integer> top(int count, RoaringBitmap candidates) {
+        return top(count, candidates, 0);
+    }
+
+    // Первые count фильмов рейтинга среди candidates после фильма after (0 — с начала рейтинга).
+    // Курсор — пара (лайки, id): место фильма after определяется его числом лайков на момент запроса.
+    // Обход рейтинга находит фильмы примерно за count * size / |candidates| шагов, куча из count фильмов —
+    // за |candidates|, поэтому небольшую выборку дешевле отсортировать кучей
+    public List<Integer> top(int count, RoaringBitmap candidates, int after) {
+        Entry start = after > 0 ? new Entry(after, likesOf(after)) : null;
+        long selected = candidates.getLongCardinality();
+        if (selected * selected > (long) count * entries.size()) {
+            return top(count, candidates::contains, start);
+        }
+
+        // запись фильма неизменяема, поэтому куча обходится без блокировки: каждый фильм читается целиком
+        PriorityQueue<Entry> worstFirst = new PriorityQueue<>(RANKING_ORDER.reversed());
+        IntIterator filmIds = candidates.getIntIterator();
+        while (filmIds.hasNext()) {
+            Entry entry = entries.get(filmIds.next());
+            if (entry != null && (start == null || RANKING_ORDER.compare(entry, start) > 0)) {
+                worstFirst.offer(entry);
+                if (worstFirst.size() > count) {
+                    worstFirst.poll();
+                }
+            }
+        }
+
+        List<Entry> best = new ArrayList<>(worstFirst);
+        best.sort(RANKING_ORDER);
+        return best.stream().map(Entry::filmId).toList();
+    }
+
+    private List<Integer> top(int count, IntPredicate filter, Entry start) {
+        List<Integer> result = new ArrayList<>(Math.min(count, entries.size()));
+
+        lock.readLock().lock();
+        try {
+            for (Entry entry : start == null ? ranking : ranking.tailSet(start, false)) {
+                if (result.size() >= count) {
+                    break;
+                }
+                if (filter.test(entry.filmId())) {
+                    result.add(entry.filmId());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return result;
+    }
+
+    private Entry replace(Entry old, Entry next) {
+        if (old != null) {
+            ranking.remove(old);
+        }
+        ranking.add(next);
+
+        return next;
+    }
+
+    private record Entry(int filmId, long likes) {
+    }
+}
@@ -0,0 +1,180 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Разреженная таблица строк {@code int[]}: строка с номером id хранит отсортированный
+ * набор значений без повторов. Основа для графа дружбы и матрицы лайков.
+ *
+ * <p>Строки неизменяемы: запись копирует строку и публикует новую, поэтому чтение идёт
+ * без блокировок, а возвращаемые массивы изменять нельзя. Записи сериализуются монитором.
+ * Таблица строк — {@link AtomicReferenceArray}: запись строки в ячейку публикует её содержимое
+ * для читателей без копирования всей таблицы.
+ */
+class SortedIntRows {
+    private static final int[] EMPTY_ROW = new int[0];
+
+    // заменяется только при росте таблицы и в replaceWith; читатель со старой таблицей видит прежние строки
+    private volatile AtomicReferenceArray<int[]> rows;
+
+    SortedIntRows() {
+        this(new AtomicReferenceArray<>(0));
+    }
+
+    private SortedIntRows(AtomicReferenceArray<int[]> rows) {
+        this.rows = rows;
+    }
+
+    int[] get(int rowId) {
+        AtomicReferenceArray<int[]> current = rows;
+        int[] row = rowId >= 0 && rowId < current.length() ? current.get(rowId) : null;
+        return row == null ? EMPTY_ROW : row;
+    }
+
+    boolean contains(int rowId, int value) {
+        return Arrays.binarySearch(get(rowId), value) >= 0;
+    }
+
+    synchronized boolean add(int rowId, int value) {
+        int[] row = get(rowId);
+        int position = Arrays.binarySearch(row, value);
+        if (position >= 0) {
+            return false;
+        }
+
+        int insertAt = -position - 1;
+        int[] updated = new int[row.length + 1];
+        System.arraycopy(row, 0, updated, 0, insertAt);
+        updated[insertAt] = value;
+        System.arraycopy(row, insertAt, updated, insertAt + 1, row.length - insertAt);
+
+        ensureCapacity(rowId).set(rowId, updated);
+        return true;
+    }
+
+    synchronized boolean remove(int rowId, int value) {
+        int[] row = get(rowId);
+        int position = Arrays.binarySearch(row, value);
+        if (position < 0) {
+            return false;
+        }
+
+        int[] updated = new int[row.length - 1];
+        System.arraycopy(row, 0, updated, 0, position);
+        System.arraycopy(row, position + 1, updated, position, row.length - position - 1);
+
+        rows.set(rowId, updated.length == 0 ? null : updated);
+        return true;
+    }
+
+    synchronized void replaceWith(SortedIntRows other) {
+        rows = other.rows;
+    }
+
+    static int intersectionSize(int[] left, int[] right) {
+        int size = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                size++;
+                i++;
+                j++;
+            }
+        }
+
+        return size;
+    }
+
+    static int[] intersect(int[] left, int[] right) {
+        int[] result = new int[Math.min(left.length, right.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[size++] = left[i];
+                i++;
+                j++;
+            }
+        }
+
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private AtomicReferenceArray<int[]> ensureCapacity(int rowId) {
+        AtomicReferenceArray<int[]> current = rows;
+        if (rowId < current.length()) {
+            return current;
+        }
+
+        AtomicReferenceArray<int[]> grown =
+                new AtomicReferenceArray<>(Math.max(rowId + 1, current.length() + (current.length() >> 1)));
+        for (int i = 0; i < current.length(); i++) {
+            grown.set(i, current.get(i));
+        }
+        rows = grown;
+        return grown;
+    }
+
+    /**
+     * Сборка таблицы из пар (строка, значение) в произвольном порядке:
+     * подсчёт размеров строк, раскладка значений и сортировка каждой строки.
+     */
+    static final class Builder {
+        private int[] rowIds = new int[1024];
+        private int[] values = new int[1024];
+        private int size;
+        private int maxRowId = -1;
+
+        void add(int rowId, int value) {
+            if (size == rowIds.length) {
+                rowIds = Arrays.copyOf(rowIds, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            rowIds[size] = rowId;
+            values[size] = value;
+            size++;
+            maxRowId = Math.max(maxRowId, rowId);
+        }
+
+        SortedIntRows build() {
+            int[] rowSizes = new int[maxRowId + 1];
+            for (int i = 0; i < size; i++) {
+                rowSizes[rowIds[i]]++;
+            }
+
+            int[][] rows = new int[maxRowId + 1][];
+            for (int rowId = 0; rowId <= maxRowId; rowId++) {
+                if (rowSizes[rowId] > 0) {
+                    rows[rowId] = new int[rowSizes[rowId]];
+                }
+            }
+
+            int[] filled = new int[maxRowId + 1];
+            for (int i = 0; i < size; i++) {
+                int rowId = rowIds[i];
+                rows[rowId][filled[rowId]++] = values[i];
+            }
+
+            for (int[] row : rows) {
+                if (row != null) {
+                    Arrays.sort(row);
+                }
+            }
+
+            return new SortedIntRows(new AtomicReferenceArray<>(rows));
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Результат одного элемента пакетной вставки: index — позиция во входном массиве,
+ * id — сгенерированный id или null, error — причина отказа или null.
+ */
+@Data
+@AllArgsConstructor
+public class BatchItemResult {
+    private int index;
+    private Integer id;
+    private String error;
+}
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Событие ленты: пользователь userId поставил или снял лайк фильму entityId (LIKE)
+ * либо добавил или удалил друга entityId (FRIEND).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedEvent {
+    private Integer eventId;
+    private Integer userId;
+    private Type eventType;
+    private Operation operation;
+    private Integer entityId;
+    private Instant timestamp;
+
+    public enum Type {
+        LIKE, FRIEND
+    }
+
+    public enum Operation {
+        ADD, REMOVE
+    }
+}
@@ -7,6 +7,7 @@ import lombok.Data;
 
 import java.time.LocalDate;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 /**
@@ -25,4 +26,18 @@ public class Film {
     private Set<Long> usersLikesFilm = new HashSet<>();
     private Set<Genre> genres = new HashSet<>();
     private Mpa mpa;
+
+    // Копия с собственными коллекциями; жанры и MPA — объекты справочника, они общие
+    public Film copy() {
+        Film copy = new Film();
+        copy.setId(id);
+        copy.setName(name);
+        copy.setDescription(description);
+        copy.setReleaseDate(releaseDate);
+        copy.setDuration(duration);
+        copy.setUsersLikesFilm(usersLikesFilm == null ? null : new HashSet<>(usersLikesFilm));
+        copy.setGenres(genres == null ? null : new LinkedHashSet<>(genres));
+        copy.setMpa(mpa);
+        return copy;
+    }
 }
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Страница фильмов по фасетным фильтрам: total — число всех подходящих фильмов,
+ * genres, mpa и years — сколько из них приходится на каждый жанр, рейтинг и год выхода.
+ */
+@Data
+@AllArgsConstructor
+public class FilmFacetPage {
+    private List<Film> films;
+    private int total;
+    private Map<Long, Integer> genres;
+    private Map<Long, Integer> mpa;
+    private Map<Integer, Integer> years;
+}
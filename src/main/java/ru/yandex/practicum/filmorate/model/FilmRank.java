@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Место фильма в рейтинге популярности; rank начинается с 1.
+ */
+@Data
+@AllArgsConstructor
+public class FilmRank {
+    private int filmId;
+    private int rank;
+    private long likes;
+}
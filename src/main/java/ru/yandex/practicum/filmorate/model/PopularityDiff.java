@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Изменения топа популярных фильмов с прошлого события: changed — фильмы, у которых поменялись место
+ * или число лайков (в том числе вошедшие в топ), removed — id фильмов, выбывших из топа.
+ */
+@Data
+@AllArgsConstructor
+public class PopularityDiff {
+    private List<FilmRank> changed;
+    private List<Integer> removed;
+}
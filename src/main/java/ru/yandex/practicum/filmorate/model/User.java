@@ -5,6 +5,7 @@ import lombok.Data;
 
 
 import java.time.LocalDate;
+import java.util.HashSet;
 import java.util.Set;
 
 /**
@@ -22,4 +23,16 @@ public class User {
     @PastOrPresent
     private LocalDate birthday;
     private Set<Long> friends;
+
+    // Копия с собственным набором друзей
+    public User copy() {
+        User copy = new User();
+        copy.setId(id);
+        copy.setEmail(email);
+        copy.setLogin(login);
+        copy.setName(name);
+        copy.setBirthday(birthday);
+        copy.setFriends(friends == null ? null : new HashSet<>(friends));
+        return copy;
+    }
 }
\ No newline at end of file
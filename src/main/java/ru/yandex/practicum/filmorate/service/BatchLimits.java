@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.BadRequestException;
+
+import java.util.List;
+
+@Component
+public class BatchLimits {
+    private final int maxItems;
+    private final int jdbcBatchSize;
+
+    public BatchLimits(@Value("${filmorate.batch.max-items:10000}") int maxItems,
+                       @Value("${filmorate.batch.jdbc-batch-size:500}") int jdbcBatchSize) {
+        this.maxItems = maxItems;
+        this.jdbcBatchSize = jdbcBatchSize;
+    }
+
+    public void checkSize(List<?> items) {
+        if (items == null || items.isEmpty() || items.size() > maxItems) {
+            throw new BadRequestException("Пакет должен содержать от 1 до " + maxItems + " элементов");
+        }
+    }
+
+    public int jdbcBatchSize() {
+        return jdbcBatchSize;
+    }
+}
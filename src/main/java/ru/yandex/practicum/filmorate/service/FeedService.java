@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dal.FeedEventWriter;
+import ru.yandex.practicum.filmorate.dal.FeedRepository;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.ExistingIds;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.model.CursorPage;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+@Service
+public class FeedService {
+    private FeedRepository feedRepository;
+    private FeedEventWriter feedEventWriter;
+    private FriendGraph friendGraph;
+    private ExistingIds existingIds;
+    private PageLimits pageLimits;
+
+    public FeedService(FeedRepository feedRepository, FeedEventWriter feedEventWriter, FriendGraph friendGraph,
+                       ExistingIds existingIds, PageLimits pageLimits) {
+        this.feedRepository = feedRepository;
+        this.feedEventWriter = feedEventWriter;
+        this.friendGraph = friendGraph;
+        this.existingIds = existingIds;
+        this.pageLimits = pageLimits;
+    }
+
+    // Событие записывается в БД вместе со следующим пакетом, запрос его не ждёт
+    public void record(int userId, FeedEvent.Type type, FeedEvent.Operation operation, int entityId) {
+        feedEventWriter.append(new FeedEvent(null, userId, type, operation, entityId, Instant.now()));
+    }
+
+    // Лента пользователя от новых событий к старым; с withFriends — вместе с событиями его друзей
+    public CursorPage<FeedEvent> getFeed(Integer userId, boolean withFriends, Integer before, Integer limit) {
+        if (!existingIds.userExists(userId)) {
+            throw new NotFoundException("Пользователя с id = " + userId + " нет");
+        }
+
+        int[] userIds = new int[]{userId};
+        if (withFriends) {
+            int[] friends = friendGraph.friendsOf(userId);
+            userIds = Arrays.copyOf(friends, friends.length + 1);
+            userIds[friends.length] = userId;
+        }
+
+        return feedRepository.findPage(userIds, before == null ? Integer.MAX_VALUE : before, pageLimits.resolve(limit));
+    }
+}
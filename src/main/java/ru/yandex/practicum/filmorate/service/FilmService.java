@@ -1,56 +1,134 @@
 package ru.yandex.practicum.filmorate.service;
 
+import jakarta.validation.Validator;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.FilmJsonCache;
+import ru.yandex.practicum.filmorate.cache.FilmVersions;
+import ru.yandex.practicum.filmorate.cache.SingleFlight;
 import ru.yandex.practicum.filmorate.dal.FilmRepository;
 import ru.yandex.practicum.filmorate.dal.GenreRepository;
+import ru.yandex.practicum.filmorate.dal.LikeWriteBuffer;
 import ru.yandex.practicum.filmorate.exception.BadRequestException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.ExistingIds;
+import ru.yandex.practicum.filmorate.index.FilmFacetIndex;
+import ru.yandex.practicum.filmorate.index.FilmRecommender;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.LikesMatrix;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.CursorPage;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFacetPage;
+import ru.yandex.practicum.filmorate.model.Genre;
 
+import java.io.ByteArrayOutputStream;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 @Service
 public class FilmService {
     private FilmRepository filmRepository;
     private MpaService mpaService;
     private GenreRepository genreRepository;
+    private PopularityLeaderboard leaderboard;
+    private PageLimits pageLimits;
+    private LikesMatrix likesMatrix;
+    private FilmRecommender filmRecommender;
+    private GenreService genreService;
+    private BatchLimits batchLimits;
+    private Validator validator;
+    private LikeWriteBuffer likeWriteBuffer;
+    private FilmVersions filmVersions;
+    private FilmJsonCache filmJsonCache;
+    private FilmSearchIndex searchIndex;
+    private FilmFacetIndex facetIndex;
+    private ExistingIds existingIds;
+    private FeedService feedService;
+    // Одновременные чтения одного фильма или топа делят одну загрузку из БД, если она начата не раньше
+    // последней записи, которую видел вызов. Присоединившимся отдаются копии фильмов, JSON не изменяется
+    private SingleFlight<Integer, Optional<Film>> filmLoads = new SingleFlight<>(film -> film.map(Film::copy));
+    private SingleFlight<Integer, Optional<byte[]>> filmJsonLoads = new SingleFlight<>();
+    private SingleFlight<Integer, List<Film>> popularLoads =
+            new SingleFlight<>(films -> films.stream().map(Film::copy).toList());
+    private SingleFlight<Integer, byte[]> popularJsonLoads = new SingleFlight<>();
+    // не synchronized: под блокировкой идут запросы к БД
+    private Lock[] updateLocks = IntStream.range(0, 64).mapToObj(i -> new ReentrantLock()).toArray(Lock[]::new);
 
-    public FilmService(FilmRepository filmRepository, MpaService mpaService, GenreRepository genreRepository) {
+    public FilmService(FilmRepository filmRepository, MpaService mpaService, GenreRepository genreRepository,
+                       PopularityLeaderboard leaderboard, PageLimits pageLimits, LikesMatrix likesMatrix,
+                       FilmRecommender filmRecommender, GenreService genreService, BatchLimits batchLimits,
+                       Validator validator, LikeWriteBuffer likeWriteBuffer, FilmVersions filmVersions,
+                       FilmJsonCache filmJsonCache, FilmSearchIndex searchIndex, FilmFacetIndex facetIndex,
+                       ExistingIds existingIds, FeedService feedService) {
         this.filmRepository = filmRepository;
         this.mpaService = mpaService;
         this.genreRepository = genreRepository;
+        this.leaderboard = leaderboard;
+        this.pageLimits = pageLimits;
+        this.likesMatrix = likesMatrix;
+        this.filmRecommender = filmRecommender;
+        this.genreService = genreService;
+        this.batchLimits = batchLimits;
+        this.validator = validator;
+        this.likeWriteBuffer = likeWriteBuffer;
+        this.filmVersions = filmVersions;
+        this.filmJsonCache = filmJsonCache;
+        this.searchIndex = searchIndex;
+        this.facetIndex = facetIndex;
+        this.existingIds = existingIds;
+        this.feedService = feedService;
+        likeWriteBuffer.onDropped(new DroppedLikes());
     }
 
     public Collection<Film> findAll() {
         return filmRepository.findAll();
     }
 
-    public Film create(Film film) {
-        if (film == null) {
-            throw new NotFoundException("Фильма не существует");
-        }
-        if (film.getName() == null || film.getName().isBlank()) {
-            throw new BadRequestException("Название фильма не может быть пустым");
-        }
-        if (film.getDescription() == null || film.getDescription().length() > 200) {
-            throw new BadRequestException("Описание слишком длинное");
-        }
-        if (film.getReleaseDate() == null || film.getReleaseDate().isBefore(LocalDate.of(1895, 12, 28))) {
-            throw new BadRequestException("Неверная дата релиза");
-        }
-        if (film.getDuration() == null || film.getDuration() <= 0) {
-            throw new BadRequestException("Продолжительность фильма должна быть положительной");
-        }
-        if (film.getMpa() == null) {
-            throw new BadRequestException("MPA не может быть null");
+    public void exportAll(Consumer<Film> consumer) {
+        filmRepository.exportAll(consumer);
+    }
+
+    public CursorPage<Film> findPage(Integer after, Integer limit) {
+        return filmRepository.findPage(pageLimits.resolveCursor(after), pageLimits.resolve(limit));
+    }
+
+    // Фильтры пересекаются в фасетном индексе, из БД загружаются только фильмы страницы
+    public FilmFacetPage findFaceted(List<Long> genreIds, List<Long> mpaIds, Integer yearFrom, Integer yearTo,
+                                     String sort, Integer after, Integer limit) {
+        boolean popular = "popular".equals(sort);
+        if (sort != null && !popular && !"id".equals(sort)) {
+            throw new BadRequestException("Неизвестная сортировка: " + sort);
         }
-        if (mpaService.findById(film.getMpa().getId()) == null) {
-            throw new NotFoundException("Mpa с id = " + film.getMpa().getId() + " нет");
+        if (yearFrom != null && yearTo != null && yearFrom > yearTo) {
+            throw new BadRequestException("yearFrom не может быть больше yearTo");
         }
 
+        int pageSize = pageLimits.resolve(limit);
+        int cursor = pageLimits.resolveCursor(after);
+        FilmFacetIndex.Selection selection = facetIndex.select(genreIds, mpaIds, yearFrom, yearTo);
+        // в обоих порядках after — id последнего фильма предыдущей страницы
+        List<Integer> ids = popular
+                ? leaderboard.top(pageSize, selection.films(), cursor)
+                : selection.idsAfter(cursor, pageSize);
+
+        return new FilmFacetPage(filmRepository.findByIds(ids), selection.total(),
+                selection.genres(), selection.mpa(), selection.years());
+    }
+
+    public Film create(Film film) {
+        validate(film);
 
         film = filmRepository.save(film);
 
@@ -58,36 +136,281 @@ public class FilmService {
             genreRepository.addGenre(film);
         }
 
+        existingIds.addFilm(film.getId());
+        leaderboard.addFilm(film.getId());
+        searchIndex.add(film);
+        facetIndex.add(film);
+
         return film;
     }
 
+    // Весь пакет проверяется до вставки: ошибочные элементы попадают в отчёт, остальные сохраняются
+    public List<BatchItemResult> createBatch(List<Film> films) {
+        batchLimits.checkSize(films);
+
+        List<BatchItemResult> results = new ArrayList<>(films.size());
+        List<Film> valid = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            String error = batchError(film);
+            results.add(new BatchItemResult(i, null, error));
+            if (error == null) {
+                valid.add(film);
+            }
+        }
+
+        if (!valid.isEmpty()) {
+            filmRepository.saveAll(valid, batchLimits.jdbcBatchSize());
+            valid.forEach(film -> {
+                existingIds.addFilm(film.getId());
+                leaderboard.addFilm(film.getId());
+                searchIndex.add(film);
+                facetIndex.add(film);
+            });
+        }
+
+        for (BatchItemResult result : results) {
+            if (result.getError() == null) {
+                result.setId(films.get(result.getIndex()).getId());
+            }
+        }
+
+        return results;
+    }
+
     public Film update(Film newFilm) {
-        if (newFilm.getId() == null || filmRepository.findById(newFilm.getId()).isEmpty()) {
-            throw new NotFoundException("Фильм с id = " + newFilm.getId() + " не найден");
+        Integer filmId = newFilm.getId();
+        if (!existingIds.filmExists(filmId)) {
+            throw new NotFoundException("Фильм с id = " + filmId + " не найден");
         }
 
-        newFilm = filmRepository.update(newFilm);
+        // Обновления одного фильма идут по очереди, чтобы индексы получали их в том же порядке, что и БД
+        Lock updateLock = updateLocks[Math.floorMod(filmId, updateLocks.length)];
+        updateLock.lock();
+        try {
+            newFilm = filmRepository.update(newFilm);
 
-        if (newFilm.getGenres() != null && !newFilm.getGenres().isEmpty()) {
-            genreRepository.updateGenre(newFilm);
+            // Пустой список жанров оставляет прежние жанры фильма
+            boolean genresReplaced = newFilm.getGenres() != null && !newFilm.getGenres().isEmpty();
+            if (genresReplaced) {
+                genreRepository.updateGenre(newFilm);
+            }
+            searchIndex.update(newFilm);
+            facetIndex.update(newFilm, genresReplaced);
+            filmVersions.bump(newFilm.getId());
+        } finally {
+            updateLock.unlock();
         }
 
         return newFilm;
     }
 
     public Optional<Film> findById(Integer id) {
-        return filmRepository.findById(id);
+        return filmLoads.load(id, () -> filmVersions.version(id), () -> filmRepository.findById(id));
+    }
+
+    // Готовый JSON фильма: из кеша, а при промахе — из БД с сохранением в кеш
+    public Optional<byte[]> findJsonById(Integer id) {
+        byte[] json = filmJsonCache.get(id);
+        if (json != null) {
+            return Optional.of(json);
+        }
+
+        return filmJsonLoads.load(id, () -> filmVersions.version(id), () -> {
+            long version = filmVersions.version(id);
+            return filmRepository.findById(id).map(film -> filmJsonCache.put(film, version));
+        });
+    }
+
+    // ETag текущей версии фильма; для существующего фильма проверяется без обращения к БД.
+    // Несуществующий фильм — 404 до сравнения с If-None-Match, иначе "*" давал бы для него 304
+    public String etag(Integer id) {
+        if (!existingIds.filmExists(id)) {
+            throw new NotFoundException("Фильм с id = " + id + " не найден");
+        }
+        return filmVersions.etag(id);
     }
 
     public void likeTheMovie(Integer filmId, Integer userId) {
-        filmRepository.likeFilm(filmId, userId);
+        if (likeWriteBuffer.isEnabled()) {
+            checkLikeTargets(filmId, userId);
+            if (likeWriteBuffer.submit(filmId, userId, true, () -> likesMatrix.like(userId, filmId))) {
+                leaderboard.changeLikes(filmId, 1);
+                filmVersions.bump(filmId);
+                feedService.record(userId, FeedEvent.Type.LIKE, FeedEvent.Operation.ADD, filmId);
+            }
+            return;
+        }
+
+        if (filmRepository.likeFilm(filmId, userId)) {
+            leaderboard.changeLikes(filmId, 1);
+            likesMatrix.like(userId, filmId);
+            filmVersions.bump(filmId);
+            feedService.record(userId, FeedEvent.Type.LIKE, FeedEvent.Operation.ADD, filmId);
+        }
     }
 
     public void removeLikeTheMovie(Integer filmId, Integer userId) {
-        filmRepository.removeLike(filmId, userId);
+        if (likeWriteBuffer.isEnabled()) {
+            checkLikeTargets(filmId, userId);
+            if (likeWriteBuffer.submit(filmId, userId, false, () -> likesMatrix.unlike(userId, filmId))) {
+                leaderboard.changeLikes(filmId, -1);
+                filmVersions.bump(filmId);
+                feedService.record(userId, FeedEvent.Type.LIKE, FeedEvent.Operation.REMOVE, filmId);
+            }
+            return;
+        }
+
+        if (filmRepository.removeLike(filmId, userId)) {
+            leaderboard.changeLikes(filmId, -1);
+            likesMatrix.unlike(userId, filmId);
+            filmVersions.bump(filmId);
+            feedService.record(userId, FeedEvent.Type.LIKE, FeedEvent.Operation.REMOVE, filmId);
+        }
     }
 
+    // Порядок фильмов берётся из рейтинга в памяти, из БД загружаются только сами фильмы
     public List<Film> getFilmWithTheMostLikes(Integer count) {
-        return filmRepository.findMostLikedFilms(count);
+        checkCount(count);
+        return popularLoads.load(count, leaderboard::version, () -> filmRepository.findByIds(leaderboard.top(count)));
+    }
+
+    public byte[] getFilmWithTheMostLikesJson(Integer count) {
+        checkCount(count);
+        return popularJsonLoads.load(count, leaderboard::version, () -> mostLikedJson(count));
+    }
+
+    // JSON-массив топа собирается из готовых документов; из БД одним запросом догружаются только промахи
+    private byte[] mostLikedJson(int count) {
+        List<Integer> ids = leaderboard.top(count);
+        byte[][] documents = new byte[ids.size()][];
+        List<Integer> missingIds = new ArrayList<>();
+        Map<Integer, Long> missingVersions = new HashMap<>();
+
+        for (int i = 0; i < ids.size(); i++) {
+            int filmId = ids.get(i);
+            documents[i] = filmJsonCache.get(filmId);
+            if (documents[i] == null) {
+                missingIds.add(filmId);
+                missingVersions.put(filmId, filmVersions.version(filmId));
+            }
+        }
+
+        Map<Integer, byte[]> loaded = new HashMap<>();
+        for (Film film : filmRepository.findByIds(missingIds)) {
+            loaded.put(film.getId(), filmJsonCache.put(film, missingVersions.get(film.getId())));
+        }
+
+        ByteArrayOutputStream array = new ByteArrayOutputStream();
+        array.write('[');
+        boolean first = true;
+        for (int i = 0; i < ids.size(); i++) {
+            byte[] document = documents[i] != null ? documents[i] : loaded.get(ids.get(i));
+            if (document == null) {
+                continue;
+            }
+            if (!first) {
+                array.write(',');
+            }
+            array.writeBytes(document);
+            first = false;
+        }
+        array.write(']');
+
+        return array.toByteArray();
+    }
+
+    // Поиск по названию и описанию идёт по индексу в памяти, из БД загружаются только найденные фильмы
+    public List<Film> search(String query, Integer limit) {
+        return filmRepository.findByIds(searchIndex.search(query, pageLimits.resolve(limit)));
+    }
+
+    // Рекомендации считаются по лайкам в памяти, из БД загружаются только сами фильмы
+    public List<Film> getRecommendedFilms(Integer userId, Integer limit) {
+        int[] recommendedIds = filmRecommender.recommend(userId, pageLimits.resolve(limit));
+        return filmRepository.findByIds(Arrays.stream(recommendedIds).boxed().toList());
+    }
+
+    // При отложенной записи ошибку внешнего ключа уже не вернуть клиенту, поэтому проверяем заранее
+    private void checkLikeTargets(Integer filmId, Integer userId) {
+        if (!existingIds.filmExists(filmId) || !existingIds.userExists(userId)) {
+            throw new NotFoundException(
+                    "Фильм с id = " + filmId + " или пользователь с id = " + userId + " не найден");
+        }
+    }
+
+    private void validate(Film film) {
+        if (film == null) {
+            throw new NotFoundException("Фильма не существует");
+        }
+        if (film.getName() == null || film.getName().isBlank()) {
+            throw new BadRequestException("Название фильма не может быть пустым");
+        }
+        if (film.getDescription() == null || film.getDescription().length() > 200) {
+            throw new BadRequestException("Описание слишком длинное");
+        }
+        if (film.getReleaseDate() == null || film.getReleaseDate().isBefore(LocalDate.of(1895, 12, 28))) {
+            throw new BadRequestException("Неверная дата релиза");
+        }
+        if (film.getDuration() == null || film.getDuration() <= 0) {
+            throw new BadRequestException("Продолжительность фильма должна быть положительной");
+        }
+        if (film.getMpa() == null) {
+            throw new BadRequestException("MPA не может быть null");
+        }
+        if (mpaService.findById(film.getMpa().getId()) == null) {
+            throw new NotFoundException("Mpa с id = " + film.getMpa().getId() + " нет");
+        }
+    }
+
+    private String batchError(Film film) {
+        try {
+            if (film != null && film.getMpa() != null && film.getMpa().getId() == null) {
+                throw new BadRequestException("У MPA должен быть id");
+            }
+            validate(film);
+            if (film.getGenres() != null) {
+                for (Genre genre : film.getGenres()) {
+                    if (genre == null || genre.getId() == null) {
+                        throw new BadRequestException("У жанра должен быть id");
+                    }
+                    genreService.findById(genre.getId());
+                }
+            }
+        } catch (BadRequestException | NotFoundException e) {
+            return e.getMessage();
+        }
+
+        return validator.validate(film).stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .reduce((first, second) -> first + "; " + second)
+                .orElse(null);
+    }
+
+    private static void checkCount(Integer count) {
+        if (count == null || count < 0) {
+            throw new BadRequestException("count должен быть неотрицательным");
+        }
+    }
+
+    // Лайк из буфера не записался в БД: рейтинг, матрица лайков и лента возвращаются к состоянию в БД
+    private class DroppedLikes implements LikeWriteBuffer.DropHandler {
+        @Override
+        public void undo(int filmId, int userId, boolean liked) {
+            if (liked) {
+                likesMatrix.unlike(userId, filmId);
+            } else {
+                likesMatrix.like(userId, filmId);
+            }
+            leaderboard.changeLikes(filmId, liked ? -1 : 1);
+            filmVersions.bump(filmId);
+        }
+
+        @Override
+        public void undone(int filmId, int userId, boolean liked) {
+            feedService.record(userId, FeedEvent.Type.LIKE,
+                    liked ? FeedEvent.Operation.REMOVE : FeedEvent.Operation.ADD, filmId);
+        }
     }
 }
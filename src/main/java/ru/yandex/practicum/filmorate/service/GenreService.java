@@ -1,7 +1,7 @@
 package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.stereotype.Service;
-import ru.yandex.practicum.filmorate.dal.GenreRepository;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
 
@@ -9,17 +9,22 @@ import java.util.List;
 
 @Service
 public class GenreService {
-    private GenreRepository genreRepository;
+    private ReferenceDataCache referenceData;
 
-    public GenreService(GenreRepository genreRepository) {
-        this.genreRepository = genreRepository;
+    public GenreService(ReferenceDataCache referenceData) {
+        this.referenceData = referenceData;
     }
 
     public List<Genre> findAll() {
-        return genreRepository.findAll();
+        return referenceData.findAllGenres();
+    }
+
+    // Версия справочника для ETag, меняется только при его перезагрузке
+    public String version() {
+        return referenceData.genresVersion();
     }
 
     public Genre findById(long id) {
-        return genreRepository.findById(id).orElseThrow(() -> new NotFoundException("Жанр не найден"));
+        return referenceData.findGenreById(id).orElseThrow(() -> new NotFoundException("Жанр не найден"));
     }
 }
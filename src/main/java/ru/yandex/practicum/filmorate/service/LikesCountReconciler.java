@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.FilmRepository;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+
+import java.util.Map;
+
+/**
+ * Периодически сверяет films.likes_count с таблицей likes и исправляет расхождения.
+ * Рейтинг в памяти получает те же поправки, а не перечитывается целиком: перечитывание
+ * затёрло бы лайки, учтённые в памяти во время сверки, и лайки, ещё не записанные из буфера.
+ */
+@Slf4j
+@Component
+public class LikesCountReconciler {
+    private final FilmRepository filmRepository;
+    private final PopularityLeaderboard leaderboard;
+
+    public LikesCountReconciler(FilmRepository filmRepository, PopularityLeaderboard leaderboard) {
+        this.filmRepository = filmRepository;
+        this.leaderboard = leaderboard;
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.likes.reconcile-interval:PT1H}",
+            fixedDelayString = "${filmorate.likes.reconcile-interval:PT1H}")
+    public void reconcile() {
+        Map<Integer, Long> corrections = filmRepository.reconcileLikesCount();
+        if (!corrections.isEmpty()) {
+            log.warn("Исправлен счётчик лайков у {} фильмов", corrections.size());
+            corrections.forEach(leaderboard::changeLikes);
+        }
+    }
+}
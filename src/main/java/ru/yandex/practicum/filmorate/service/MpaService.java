@@ -1,7 +1,7 @@
 package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.stereotype.Service;
-import ru.yandex.practicum.filmorate.dal.MpaRepository;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Mpa;
 
@@ -9,17 +9,22 @@ import java.util.List;
 
 @Service
 public class MpaService {
-    private MpaRepository mpaRepository;
+    private ReferenceDataCache referenceData;
 
-    public MpaService(MpaRepository mpaRepository) {
-        this.mpaRepository = mpaRepository;
+    public MpaService(ReferenceDataCache referenceData) {
+        this.referenceData = referenceData;
     }
 
     public List<Mpa> findAll() {
-        return mpaRepository.findAll();
+        return referenceData.findAllMpa();
+    }
+
+    // Версия справочника для ETag, меняется только при его перезагрузке
+    public String version() {
+        return referenceData.mpaVersion();
     }
 
     public Mpa findById(long id) {
-        return mpaRepository.findById(id).orElseThrow(() -> new NotFoundException("mpa not found"));
+        return referenceData.findMpaById(id).orElseThrow(() -> new NotFoundException("mpa not found"));
     }
 }
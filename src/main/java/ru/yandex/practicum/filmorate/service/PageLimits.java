@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.BadRequestException;
+
+@Component
+public class PageLimits {
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    public PageLimits(@Value("${filmorate.pagination.default-limit:100}") int defaultLimit,
+                      @Value("${filmorate.pagination.max-limit:1000}") int maxLimit) {
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    public int resolve(Integer limit) {
+        if (limit == null) {
+            return defaultLimit;
+        }
+        if (limit <= 0 || limit > maxLimit) {
+            throw new BadRequestException("Размер страницы должен быть от 1 до " + maxLimit);
+        }
+
+        return limit;
+    }
+
+    public int resolveCursor(Integer after) {
+        return after == null ? 0 : after;
+    }
+}
@@ -0,0 +1,207 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.model.FilmRank;
+import ru.yandex.practicum.filmorate.model.PopularityDiff;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Рассылка изменений топа популярных фильмов по SSE. Лайки только двигают версию рейтинга,
+ * а раз в interval, если версия изменилась, топ из size фильмов сравнивается с разосланным:
+ * пачка лайков за интервал превращается в одно событие ranks. Разница считается
+ * и сериализуется один раз на всех подписчиков.
+ *
+ * <p>Новый подписчик сначала получает событие snapshot — топ, от которого считается следующая разница.
+ * Подписка, расчёт разницы и выбор получателей идут под одной блокировкой, поэтому разница не может
+ * прийти раньше снимка. Сама запись клиентам идёт уже без блокировки, каждому в своём виртуальном потоке:
+ * подписчик, не принявший событие за send-timeout, отключается и не задерживает рассылку остальным
+ * и следующие рассылки.
+ */
+@Slf4j
+@Component
+public class PopularityBroadcaster {
+    private final PopularityLeaderboard leaderboard;
+    private final ObjectMapper objectMapper;
+    private final int size;
+    private final Duration timeout;
+    private final Duration sendTimeout;
+    private final ExecutorService sender = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("popular-stream-", 0).factory());
+    private final Set<SseEmitter> subscribers = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock publishLock = new ReentrantLock();
+    private List<FilmRank> published = List.of();
+    private long publishedVersion = -1;
+
+    public PopularityBroadcaster(PopularityLeaderboard leaderboard, ObjectMapper objectMapper, MeterRegistry registry,
+                                 @Value("${filmorate.films.popular-stream.size:10}") int size,
+                                 @Value("${filmorate.films.popular-stream.timeout:PT30M}") Duration timeout,
+                                 @Value("${filmorate.films.popular-stream.send-timeout:PT5S}") Duration sendTimeout) {
+        this.leaderboard = leaderboard;
+        this.objectMapper = objectMapper;
+        this.size = size;
+        this.timeout = timeout;
+        this.sendTimeout = sendTimeout;
+        registry.gaugeCollectionSize("filmorate.films.popular.stream.subscribers", List.of(), subscribers);
+    }
+
+    public SseEmitter subscribe() {
+        return subscribe(new SseEmitter(timeout.toMillis()));
+    }
+
+    SseEmitter subscribe(SseEmitter emitter) {
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> subscribers.remove(emitter));
+
+        publishLock.lock();
+        try {
+            // без подписчиков разосланный топ не обновлялся, и снимок можно взять свежий
+            if (subscribers.isEmpty()) {
+                refresh();
+            }
+            // эмиттер ещё не отдан контейнеру: событие копится в нём, а не пишется в сокет под блокировкой
+            emitter.send(event("snapshot", published));
+            subscribers.add(emitter);
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        } finally {
+            publishLock.unlock();
+        }
+
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.films.popular-stream.interval:PT1S}")
+    public void publish() {
+        if (subscribers.isEmpty() || leaderboard.version() == publishedVersion) {
+            return;
+        }
+
+        Set<ResponseBodyEmitter.DataWithMediaType> event;
+        List<SseEmitter> recipients;
+        PopularityDiff diff;
+        publishLock.lock();
+        try {
+            List<FilmRank> previous = published;
+            refresh();
+            diff = diff(previous, published);
+            if (diff.getChanged().isEmpty() && diff.getRemoved().isEmpty()) {
+                return;
+            }
+
+            event = event("ranks", diff);
+            recipients = List.copyOf(subscribers);
+        } finally {
+            publishLock.unlock();
+        }
+
+        int dropped = send(recipients, event);
+        log.debug("Изменения топа разосланы: изменено = {}, выбыло = {}, подписчиков = {}, отключено = {}",
+                diff.getChanged().size(), diff.getRemoved().size(), subscribers.size(), dropped);
+    }
+
+    // Следующая рассылка начинается только после этой, поэтому события каждому подписчику идут по порядку
+    private int send(List<SseEmitter> recipients, Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        List<Future<?>> sends = new ArrayList<>(recipients.size());
+        for (SseEmitter recipient : recipients) {
+            sends.add(sender.submit(() -> {
+                recipient.send(event);
+                return null;
+            }));
+        }
+
+        int dropped = 0;
+        long deadline = System.nanoTime() + sendTimeout.toNanos();
+        for (int i = 0; i < sends.size(); i++) {
+            SseEmitter recipient = recipients.get(i);
+            try {
+                sends.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                // клиент отключился: контейнер сам завершит запрос
+                subscribers.remove(recipient);
+            } catch (TimeoutException e) {
+                // завершение ждёт зависшую запись, поэтому тоже идёт в отдельном потоке
+                sends.get(i).cancel(true);
+                subscribers.remove(recipient);
+                sender.execute(recipient::complete);
+                dropped++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return dropped;
+            }
+        }
+
+        return dropped;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    // Версия читается до топа: изменение во время чтения попадёт в следующую рассылку
+    private void refresh() {
+        publishedVersion = leaderboard.version();
+        List<Integer> top = leaderboard.top(size);
+        List<FilmRank> ranks = new ArrayList<>(top.size());
+        for (int i = 0; i < top.size(); i++) {
+            ranks.add(new FilmRank(top.get(i), i + 1, leaderboard.likesOf(top.get(i))));
+        }
+        published = ranks;
+    }
+
+    static PopularityDiff diff(List<FilmRank> previous, List<FilmRank> next) {
+        Map<Integer, FilmRank> previousById = new HashMap<>();
+        previous.forEach(rank -> previousById.put(rank.getFilmId(), rank));
+
+        List<FilmRank> changed = new ArrayList<>();
+        for (FilmRank rank : next) {
+            if (!rank.equals(previousById.remove(rank.getFilmId()))) {
+                changed.add(rank);
+            }
+        }
+
+        return new PopularityDiff(changed, previousById.keySet().stream().sorted().toList());
+    }
+
+    // Событие собирается один раз и отправляется всем подписчикам как есть
+    private Set<ResponseBodyEmitter.DataWithMediaType> event(String name, Object value) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать рейтинг", e);
+        }
+        return SseEmitter.event().name(name).data(json, MediaType.APPLICATION_JSON).build();
+    }
+}
@@ -1,29 +1,76 @@
 package ru.yandex.practicum.filmorate.service;
 
+import jakarta.validation.Validator;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.SingleFlight;
 import ru.yandex.practicum.filmorate.dal.UserRepository;
 import ru.yandex.practicum.filmorate.exception.InvalidFormatException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.ExistingIds;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.index.FriendRecommender;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.CursorPage;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 
 @Service
 public class UserService {
 
     private UserRepository userRepository;
-
-    public UserService(UserRepository userRepository) {
+    private PageLimits pageLimits;
+    private FriendGraph friendGraph;
+    private FriendRecommender friendRecommender;
+    private FilmService filmService;
+    private BatchLimits batchLimits;
+    private Validator validator;
+    private ExistingIds existingIds;
+    private FeedService feedService;
+    // Одновременные запросы друзей одного пользователя делят одну загрузку из БД, если она начата
+    // не раньше последнего изменения дружбы, которое видел вызов. Присоединившимся отдаются копии
+    private SingleFlight<Integer, Set<User>> friendsLoads =
+            new SingleFlight<>(users -> users.stream().map(User::copy).collect(Collectors.toUnmodifiableSet()));
+
+    public UserService(UserRepository userRepository, PageLimits pageLimits, FriendGraph friendGraph,
+                       FriendRecommender friendRecommender, FilmService filmService, BatchLimits batchLimits,
+                       Validator validator, ExistingIds existingIds, FeedService feedService) {
         this.userRepository = userRepository;
+        this.pageLimits = pageLimits;
+        this.friendGraph = friendGraph;
+        this.friendRecommender = friendRecommender;
+        this.filmService = filmService;
+        this.batchLimits = batchLimits;
+        this.validator = validator;
+        this.existingIds = existingIds;
+        this.feedService = feedService;
     }
 
     public Collection<User> findAll() {
         return userRepository.findAll();
     }
 
+    public void exportAll(Consumer<User> consumer) {
+        userRepository.exportAll(consumer);
+    }
+
+    public CursorPage<User> findPage(Integer after, Integer limit) {
+        return userRepository.findPage(pageLimits.resolveCursor(after), pageLimits.resolve(limit));
+    }
+
     public Optional<User> findById(Integer id) {
         return userRepository.findById(id);
     }
@@ -37,11 +84,56 @@ public class UserService {
             throw new InvalidFormatException("Логин не может содержать пробелов");
         }
 
-        return userRepository.save(user);
+        user = userRepository.save(user);
+        existingIds.addUser(user.getId());
+
+        return user;
+    }
+
+    // Весь пакет проверяется до вставки, включая занятые email и логины: ошибочные элементы
+    // попадают в отчёт, остальные сохраняются
+    public List<BatchItemResult> createBatch(List<User> users) {
+        batchLimits.checkSize(users);
+
+        List<User> candidates = users.stream().filter(Objects::nonNull).toList();
+        Set<String> takenEmails = userRepository.findTakenEmails(
+                candidates.stream().map(User::getEmail).filter(Objects::nonNull).toList());
+        Set<String> takenLogins = userRepository.findTakenLogins(
+                candidates.stream().map(User::getLogin).filter(Objects::nonNull).toList());
+
+        List<BatchItemResult> results = new ArrayList<>(users.size());
+        List<User> valid = new ArrayList<>();
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            String error = batchError(user, takenEmails, takenLogins);
+            results.add(new BatchItemResult(i, null, error));
+            if (error == null) {
+                if (user.getName() == null || user.getName().isBlank()) {
+                    user.setName(user.getLogin());
+                }
+                // следующие элементы пакета с тем же email или логином считаются дубликатами
+                takenEmails.add(user.getEmail());
+                takenLogins.add(user.getLogin());
+                valid.add(user);
+            }
+        }
+
+        if (!valid.isEmpty()) {
+            userRepository.saveAll(valid, batchLimits.jdbcBatchSize());
+            valid.forEach(user -> existingIds.addUser(user.getId()));
+        }
+
+        for (BatchItemResult result : results) {
+            if (result.getError() == null) {
+                result.setId(users.get(result.getIndex()).getId());
+            }
+        }
+
+        return results;
     }
 
     public User update(User newUser) {
-        if (newUser.getId() == null || userRepository.findById(newUser.getId()).isEmpty()) {
+        if (!existingIds.userExists(newUser.getId())) {
             throw new NotFoundException("Пользователь с id = " + newUser.getId() + " не найден");
         }
 
@@ -53,35 +145,98 @@ public class UserService {
     }
 
     public void addFriend(Integer id, Integer friendId) {
-        if (userRepository.findById(id).isEmpty()) {
+        if (!existingIds.userExists(id)) {
             throw new NotFoundException("Пользователя с id = " + id + " нет");
         }
-        if (userRepository.findById(friendId).isEmpty()) {
+        if (!existingIds.userExists(friendId)) {
             throw new NotFoundException("Пользователя с id = " + friendId + " нет");
         }
 
         userRepository.addFriend(id, friendId);
+        friendGraph.addFriend(id, friendId);
+        feedService.record(id, FeedEvent.Type.FRIEND, FeedEvent.Operation.ADD, friendId);
     }
 
     public void removeFromFriends(Integer id, Integer friendId) {
-        if (userRepository.findById(id).isEmpty()) {
+        if (!existingIds.userExists(id)) {
             throw new NotFoundException("Пользователя с id = " + id + " нет");
         }
-        if (userRepository.findById(friendId).isEmpty()) {
+        if (!existingIds.userExists(friendId)) {
             throw new NotFoundException("Пользователя с id = " + friendId + " нет");
         }
 
-        userRepository.removeFromFriends(id, friendId);
+        if (userRepository.removeFromFriends(id, friendId)) {
+            friendGraph.removeFriend(id, friendId);
+            feedService.record(id, FeedEvent.Type.FRIEND, FeedEvent.Operation.REMOVE, friendId);
+        }
     }
 
     public Set<User> getFriendsToUser(Integer id) {
-        if (userRepository.findById(id).isEmpty()) {
+        if (!existingIds.userExists(id)) {
             throw new NotFoundException("Пользователя с id = " + id + " нет");
         }
-        return userRepository.getFriendsToUser(id);
+        return friendsLoads.load(id, friendGraph::version,
+                () -> Set.copyOf(userRepository.findByIds(friendGraph.friendsOf(id))));
     }
 
+    // Общие друзья считаются пересечением списков в памяти, из БД загружаются только сами пользователи
     public Set<User> getFriendsCommonOtherFriend(Integer id, Integer friendId) {
-        return userRepository.getFriendsCommonOtherFriend(id, friendId);
+        if (!existingIds.userExists(id)) {
+            throw new NotFoundException("Пользователя с id = " + id + " нет");
+        }
+        if (!existingIds.userExists(friendId)) {
+            throw new NotFoundException("Пользователя с id = " + friendId + " нет");
+        }
+        return Set.copyOf(userRepository.findByIds(friendGraph.commonFriends(id, friendId)));
+    }
+
+    public List<User> getRecommendations(Integer id, Integer limit) {
+        if (!existingIds.userExists(id)) {
+            throw new NotFoundException("Пользователя с id = " + id + " нет");
+        }
+
+        int[] recommendedIds = friendRecommender.recommend(id, pageLimits.resolve(limit));
+
+        Map<Integer, User> usersById = new HashMap<>();
+        userRepository.findByIds(recommendedIds).forEach(user -> usersById.put(user.getId(), user));
+
+        return Arrays.stream(recommendedIds)
+                .mapToObj(usersById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    public List<Film> getRecommendedFilms(Integer id, Integer limit) {
+        if (!existingIds.userExists(id)) {
+            throw new NotFoundException("Пользователя с id = " + id + " нет");
+        }
+
+        return filmService.getRecommendedFilms(id, limit);
+    }
+
+    private String batchError(User user, Set<String> takenEmails, Set<String> takenLogins) {
+        if (user == null) {
+            return "Пользователь не задан";
+        }
+
+        String violations = validator.validate(user).stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .reduce((first, second) -> first + "; " + second)
+                .orElse(null);
+        if (violations != null) {
+            return violations;
+        }
+        if (!user.getLogin().chars().noneMatch(Character::isWhitespace)) {
+            return "Логин не может содержать пробелов";
+        }
+        if (takenEmails.contains(user.getEmail())) {
+            return "Email " + user.getEmail() + " уже используется";
+        }
+        if (takenLogins.contains(user.getLogin())) {
+            return "Логин " + user.getLogin() + " уже используется";
+        }
+
+        return null;
     }
 }
@@ -0,0 +1,13 @@
+-- лента событий пользователей: строки только добавляются, id растёт в порядке событий
+CREATE TABLE IF NOT EXISTS feed_events (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id INTEGER NOT NULL,
+    event_type VARCHAR(10) NOT NULL,
+    operation VARCHAR(10) NOT NULL,
+    entity_id INTEGER NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    FOREIGN KEY(user_id) REFERENCES users(id)
+);
+
+-- страница ленты читается по индексу от новых событий к старым, без сортировки всего журнала
+CREATE INDEX IF NOT EXISTS feed_events_user_id_idx ON feed_events(user_id, id DESC);
@@ -0,0 +1,6 @@
+-- счётчик лайков фильма и индекс для выборки популярных
+ALTER TABLE films ADD COLUMN IF NOT EXISTS likes_count INTEGER DEFAULT 0 NOT NULL;
+CREATE INDEX IF NOT EXISTS films_likes_count_idx ON films(likes_count DESC, id);
+
+-- в уже заполненной базе счётчик сразу считается по likes: рейтинг строится из него при старте
+UPDATE films SET likes_count = (SELECT COUNT(*) FROM likes l WHERE l.film_id = films.id);
@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilmJsonCacheTest {
+    private final FilmVersions filmVersions = new FilmVersions();
+    private final FilmJsonCache cache = new FilmJsonCache(
+            new ObjectMapper().registerModule(new JavaTimeModule()), filmVersions, new SimpleMeterRegistry(), 2);
+
+    @Test
+    void shouldServeDocumentUntilFilmVersionChanges() {
+        cache.put(film(1, "Кин-дза-дза!"), filmVersions.version(1));
+
+        assertThat(new String(cache.get(1), StandardCharsets.UTF_8)).contains("\"name\":\"Кин-дза-дза!\"");
+
+        filmVersions.bump(1);
+
+        assertThat(cache.get(1)).isNull();
+    }
+
+    @Test
+    void shouldDiscardDocumentSerializedFromStaleVersion() {
+        long versionBeforeLoad = filmVersions.version(1);
+        filmVersions.bump(1);
+
+        cache.put(film(1, "Film"), versionBeforeLoad);
+
+        assertThat(cache.get(1)).isNull();
+    }
+
+    @Test
+    void shouldKeepSizeWithinLimit() {
+        for (int id = 1; id <= 5; id++) {
+            cache.put(film(id, "Film " + id), filmVersions.version(id));
+        }
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(5)).isNotNull();
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyRequestedFilm() {
+        cache.put(film(1, "Film 1"), filmVersions.version(1));
+        cache.put(film(2, "Film 2"), filmVersions.version(2));
+        cache.get(1);
+
+        cache.put(film(3, "Film 3"), filmVersions.version(3));
+
+        assertThat(cache.get(1)).isNotNull();
+        assertThat(cache.get(2)).isNull();
+        assertThat(cache.get(3)).isNotNull();
+    }
+
+    @Test
+    void shouldStopServingDocumentsAfterReferenceDataChange() {
+        cache.put(film(1, "Film 1"), filmVersions.version(1));
+
+        // так обновление справочников помечает устаревшими все фильмы с прежними названиями
+        filmVersions.bumpAll();
+
+        assertThat(cache.get(1)).isNull();
+    }
+
+    private Film film(int id, String name) {
+        Film film = new Film();
+        film.setId(id);
+        film.setName(name);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(1986, 12, 1));
+        film.setDuration(135);
+        return film;
+    }
+}
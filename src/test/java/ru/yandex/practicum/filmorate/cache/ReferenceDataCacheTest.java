@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.config.ReferenceDataCacheTestConfig;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import(ReferenceDataCacheTestConfig.class)
+class ReferenceDataCacheTest {
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void restoreCache() {
+        // изменения в БД откатываются после теста, кэш перечитываем вручную
+        referenceDataCache.refresh();
+    }
+
+    @Test
+    void shouldLoadReferenceDataAtStartup() {
+        assertThat(referenceDataCache.findAllMpa())
+                .extracting(Mpa::getName)
+                .containsExactly("G", "PG", "PG-13", "R", "NC-17");
+        assertThat(referenceDataCache.findAllGenres()).hasSize(6);
+        assertThat(referenceDataCache.findMpaById(4))
+                .hasValueSatisfying(mpa -> assertThat(mpa.getName()).isEqualTo("R"));
+        assertThat(referenceDataCache.findGenreById(100)).isEmpty();
+    }
+
+    @Test
+    void shouldServeFromMemoryUntilRefreshed() {
+        jdbcTemplate.update("UPDATE genres SET name = ? WHERE id = ?", "Вестерн", 1);
+
+        assertThat(referenceDataCache.findGenreById(1))
+                .map(Genre::getName)
+                .hasValue("Комедия");
+
+        referenceDataCache.refresh();
+
+        assertThat(referenceDataCache.findGenreById(1))
+                .map(Genre::getName)
+                .hasValue("Вестерн");
+    }
+}
@@ -0,0 +1,159 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+    private static final int CALLERS = 8;
+
+    private final SingleFlight<Integer, String> singleFlight = new SingleFlight<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger loads = new AtomicInteger();
+    private final AtomicLong version = new AtomicLong();
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldLoadOnceForConcurrentCallersWithSameKey() throws Exception {
+        List<Future<String>> results = startCallers(() -> {
+            loads.incrementAndGet();
+            await(release);
+            return "film 1";
+        });
+
+        waitUntilAllJoined();
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("film 1");
+        }
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void shouldPassLoadFailureToEveryCaller() throws Exception {
+        List<Future<String>> results = startCallers(() -> {
+            loads.incrementAndGet();
+            await(release);
+            throw new IllegalStateException("БД недоступна");
+        });
+
+        waitUntilAllJoined();
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalStateException.class);
+        }
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void shouldLoadAgainAfterPreviousLoadCompleted() {
+        singleFlight.load(1, version::get, () -> "film " + loads.incrementAndGet());
+
+        assertThat(singleFlight.load(1, version::get, () -> "film " + loads.incrementAndGet())).isEqualTo("film 2");
+        assertThat(singleFlight.joined()).isZero();
+    }
+
+    @Test
+    void shouldShareOneNextLoadAmongCallersThatSawNewerVersion() throws Exception {
+        Supplier<String> loader = () -> {
+            int load = loads.incrementAndGet();
+            await(release);
+            return "film " + load;
+        };
+        List<Future<String>> before = startCallers(CALLERS / 2, loader);
+        waitUntilJoined(CALLERS / 2 - 1);
+
+        // идущая загрузка могла прочитать фильм до изменения — новые вызовы ждут следующую, одну на всех
+        version.incrementAndGet();
+        List<Future<String>> after = startCallers(CALLERS / 2, loader);
+        waitUntilJoined(CALLERS - 2);
+        release.countDown();
+
+        for (Future<String> result : before) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("film 1");
+        }
+        for (Future<String> result : after) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("film 2");
+        }
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void shouldHandJoinersTheirOwnCopy() throws Exception {
+        SingleFlight<Integer, List<String>> copying = new SingleFlight<>(ArrayList::new);
+        List<String> loaded = new ArrayList<>(List.of("film 1"));
+        CountDownLatch started = new CountDownLatch(1);
+        Future<List<String>> leader = executor.submit(() -> copying.load(1, version::get, () -> {
+            started.countDown();
+            await(release);
+            return loaded;
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<List<String>> joiner = executor.submit(() -> copying.load(1, version::get, ArrayList::new));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (copying.joined() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isSameAs(loaded);
+        assertThat(joiner.get(5, TimeUnit.SECONDS)).isEqualTo(loaded).isNotSameAs(loaded);
+    }
+
+    private List<Future<String>> startCallers(Supplier<String> loader) {
+        return startCallers(CALLERS, loader);
+    }
+
+    private List<Future<String>> startCallers(int callers, Supplier<String> loader) {
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(executor.submit(() -> singleFlight.load(1, version::get, loader)));
+        }
+        return results;
+    }
+
+    // Загрузка держится, пока все остальные вызовы не присоединятся к ней
+    private void waitUntilAllJoined() throws InterruptedException {
+        waitUntilJoined(CALLERS - 1);
+    }
+
+    private void waitUntilJoined(int joiners) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (singleFlight.joined() < joiners && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(singleFlight.joined()).isEqualTo(joiners);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
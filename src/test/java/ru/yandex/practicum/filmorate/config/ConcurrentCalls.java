@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Одновременные вызовы сервиса для проверки объединения загрузок. Загрузка в репозитории ждёт release,
+ * пока все вызовы не встанут в ожидание — своей загрузки или чужой.
+ */
+public final class ConcurrentCalls {
+    private ConcurrentCalls() {
+    }
+
+    public static <T> List<T> run(int callers, CountDownLatch release, Callable<T> call) throws Exception {
+        List<FutureTask<T>> tasks = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            FutureTask<T> task = new FutureTask<>(call);
+            Thread thread = new Thread(task, "caller-" + i);
+            tasks.add(task);
+            threads.add(thread);
+            thread.start();
+        }
+
+        try {
+            awaitAllWaiting(threads);
+        } finally {
+            release.countDown();
+        }
+
+        List<T> results = new ArrayList<>();
+        for (FutureTask<T> task : tasks) {
+            results.add(task.get(5, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+    // Ожидание должно держаться два опроса подряд, чтобы не принять за него короткую блокировку по пути
+    private static void awaitAllWaiting(List<Thread> threads) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        int stablePolls = 0;
+        while (stablePolls < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            boolean allWaiting = threads.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING);
+            stablePolls = allWaiting ? stablePolls + 1 : 0;
+        }
+        assertThat(stablePolls).as("все вызовы ждут загрузку").isEqualTo(2);
+    }
+}
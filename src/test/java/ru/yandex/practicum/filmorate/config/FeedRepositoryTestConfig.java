@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.dal.FeedRepository;
+import ru.yandex.practicum.filmorate.dal.QueryMetrics;
+import ru.yandex.practicum.filmorate.dal.mappers.FeedEventRowMapper;
+
+@Configuration
+@Import(QueryMetricsTestConfig.class)
+public class FeedRepositoryTestConfig {
+    @Bean
+    public FeedRepository feedRepository(JdbcTemplate jdbcTemplate, FeedEventRowMapper feedEventRowMapper,
+                                         QueryMetrics queryMetrics) {
+        return new FeedRepository(jdbcTemplate, feedEventRowMapper, queryMetrics);
+    }
+
+    @Bean
+    public FeedEventRowMapper feedEventRowMapper() {
+        return new FeedEventRowMapper();
+    }
+}
@@ -2,20 +2,26 @@ package ru.yandex.practicum.filmorate.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.dal.FilmRepository;
+import ru.yandex.practicum.filmorate.dal.QueryMetrics;
 import ru.yandex.practicum.filmorate.dal.mappers.FilmRowMapper;
 
 @Configuration
+@Import(ReferenceDataCacheTestConfig.class)
 public class FilmRepositoryTestConfig {
     @Bean
     public FilmRepository filmRepository(JdbcTemplate jdbcTemplate,
-                                         FilmRowMapper filmRowMapper) {
-        return new FilmRepository(jdbcTemplate, filmRowMapper);
+                                         FilmRowMapper filmRowMapper,
+                                         ReferenceDataCache referenceDataCache,
+                                         QueryMetrics queryMetrics) {
+        return new FilmRepository(jdbcTemplate, filmRowMapper, referenceDataCache, queryMetrics);
     }
 
     @Bean
     public FilmRowMapper filmRowMapper() {
         return new FilmRowMapper();
     }
-}
\ No newline at end of file
+}
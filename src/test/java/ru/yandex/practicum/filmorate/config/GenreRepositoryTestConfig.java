@@ -2,15 +2,19 @@ package ru.yandex.practicum.filmorate.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
 import ru.yandex.practicum.filmorate.dal.GenreRepository;
+import ru.yandex.practicum.filmorate.dal.QueryMetrics;
 import ru.yandex.practicum.filmorate.dal.mappers.GenreRowMapper;
 
 @Configuration
+@Import(QueryMetricsTestConfig.class)
 public class GenreRepositoryTestConfig {
     @Bean
-    public GenreRepository genreRepository(JdbcTemplate jdbcTemplate, GenreRowMapper genreRowMapper) {
-        return new GenreRepository(jdbcTemplate, genreRowMapper);
+    public GenreRepository genreRepository(JdbcTemplate jdbcTemplate, GenreRowMapper genreRowMapper,
+                                           QueryMetrics queryMetrics) {
+        return new GenreRepository(jdbcTemplate, genreRowMapper, queryMetrics);
     }
 
     @Bean
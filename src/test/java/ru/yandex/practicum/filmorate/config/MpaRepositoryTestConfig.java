@@ -2,15 +2,19 @@ package ru.yandex.practicum.filmorate.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
 import ru.yandex.practicum.filmorate.dal.MpaRepository;
+import ru.yandex.practicum.filmorate.dal.QueryMetrics;
 import ru.yandex.practicum.filmorate.dal.mappers.MpaRowMapper;
 
 @Configuration
+@Import(QueryMetricsTestConfig.class)
 public class MpaRepositoryTestConfig {
     @Bean
-    public MpaRepository mpaRepository(JdbcTemplate jdbcTemplate, MpaRowMapper mpaRowMapper) {
-        return new MpaRepository(jdbcTemplate, mpaRowMapper);
+    public MpaRepository mpaRepository(JdbcTemplate jdbcTemplate, MpaRowMapper mpaRowMapper,
+                                       QueryMetrics queryMetrics) {
+        return new MpaRepository(jdbcTemplate, mpaRowMapper, queryMetrics);
     }
 
     @Bean
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.dal.QueryMetrics;
+
+@Configuration
+public class QueryMetricsTestConfig {
+    @Bean
+    public MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
+    @Bean
+    public QueryMetrics queryMetrics(MeterRegistry meterRegistry) {
+        return new QueryMetrics(meterRegistry);
+    }
+}
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.cache.FilmVersions;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.dal.GenreRepository;
+import ru.yandex.practicum.filmorate.dal.MpaRepository;
+
+@Configuration
+@Import({MpaRepositoryTestConfig.class, GenreRepositoryTestConfig.class})
+public class ReferenceDataCacheTestConfig {
+    @Bean
+    public ReferenceDataCache referenceDataCache(MpaRepository mpaRepository, GenreRepository genreRepository) {
+        return new ReferenceDataCache(mpaRepository, genreRepository, new FilmVersions());
+    }
+}
@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.config;
+
+import ru.yandex.practicum.filmorate.dal.RequestStatements;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверка числа SQL-запросов, выполненных вызовом репозитория или контроллера (через MockMvc).
+ */
+public final class StatementCounts {
+    private StatementCounts() {
+    }
+
+    public static int count(ThrowingRunnable call) throws Exception {
+        try (RequestStatements statements = RequestStatements.open()) {
+            call.run();
+            return statements.total();
+        }
+    }
+
+    public static void assertStatementsAtMost(int max, ThrowingRunnable call) throws Exception {
+        try (RequestStatements statements = RequestStatements.open()) {
+            call.run();
+            assertThat(statements.total())
+                    .as("SQL-запросы: %s", statements.repeated(1))
+                    .isLessThanOrEqualTo(max);
+        }
+    }
+
+    @FunctionalInterface
+    public interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}
@@ -2,15 +2,19 @@ package ru.yandex.practicum.filmorate.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.dal.QueryMetrics;
 import ru.yandex.practicum.filmorate.dal.UserRepository;
 import ru.yandex.practicum.filmorate.dal.mappers.UserRowMapper;
 
 @Configuration
+@Import(QueryMetricsTestConfig.class)
 public class UserRepositoryTestConfig {
     @Bean
-    public UserRepository userRepository(JdbcTemplate jdbcTemplate, UserRowMapper userRowMapper) {
-        return new UserRepository(jdbcTemplate, userRowMapper);
+    public UserRepository userRepository(JdbcTemplate jdbcTemplate, UserRowMapper userRowMapper,
+                                         QueryMetrics queryMetrics) {
+        return new UserRepository(jdbcTemplate, userRowMapper, queryMetrics);
     }
 
     @Bean
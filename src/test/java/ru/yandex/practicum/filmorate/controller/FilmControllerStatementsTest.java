@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.yandex.practicum.filmorate.config.StatementCounts;
+import ru.yandex.practicum.filmorate.dal.QueryMetrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+class FilmControllerStatementsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private QueryMetrics queryMetrics;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void shouldReadFilmListsWithConstantNumberOfStatements() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            mockMvc.perform(post("/films")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("""
+                                    {"name": "Film %d", "description": "Description", "releaseDate": "2000-01-01",
+                                     "duration": 100, "mpa": {"id": 1}, "genres": [{"id": 1}, {"id": 2}]}
+                                    """.formatted(i)))
+                    .andExpect(status().isOk());
+        }
+
+        StatementCounts.assertStatementsAtMost(2, () ->
+                mockMvc.perform(get("/films")).andExpect(status().isOk()));
+        StatementCounts.assertStatementsAtMost(2, () ->
+                mockMvc.perform(get("/films/popular").param("count", "20")).andExpect(status().isOk()));
+        // второй раз топ собирается из готового JSON
+        StatementCounts.assertStatementsAtMost(0, () ->
+                mockMvc.perform(get("/films/popular").param("count", "20")).andExpect(status().isOk()));
+    }
+
+    @Test
+    void shouldReportStatementRepeatedAboveThreshold() throws Exception {
+        StatementCountingFilter filter = new StatementCountingFilter(meterRegistry, 3);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/films/1");
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/films/{id}");
+            for (int i = 0; i < 3; i++) {
+                queryMetrics.record("Test.PER_ROW_QUERY", () -> null);
+            }
+            queryMetrics.record("Test.LIST_QUERY", () -> null);
+        });
+
+        assertThat(meterRegistry.find("filmorate.db.repeated.statements")
+                .tags("endpoint", "GET /films/{id}", "query", "Test.PER_ROW_QUERY")
+                .counter())
+                .isNotNull()
+                .extracting(counter -> counter.count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.find("filmorate.db.repeated.statements")
+                .tags("query", "Test.LIST_QUERY")
+                .counter())
+                .isNull();
+        assertThat(meterRegistry.find("filmorate.http.statements")
+                .tags("endpoint", "GET /films/{id}")
+                .summary()
+                .max())
+                .isEqualTo(4.0);
+    }
+}
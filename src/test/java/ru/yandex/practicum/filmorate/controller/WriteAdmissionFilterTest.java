@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WriteAdmissionFilterTest {
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldRefillTokensAtConfiguredRate() {
+        long second = TimeUnit.SECONDS.toNanos(1);
+        TokenBucket bucket = new TokenBucket(2, 3, 0);
+
+        assertThat(bucket.tryAcquire(0)).isTrue();
+        assertThat(bucket.tryAcquire(0)).isTrue();
+        assertThat(bucket.tryAcquire(0)).isTrue();
+        assertThat(bucket.tryAcquire(0)).isFalse();
+        assertThat(bucket.nanosUntilNextToken(0)).isEqualTo(second / 2);
+
+        assertThat(bucket.tryAcquire(second / 2)).isTrue();
+        assertThat(bucket.tryAcquire(second / 2)).isFalse();
+        assertThat(bucket.isFull(second)).isFalse();
+        assertThat(bucket.isFull(2 * second)).isTrue();
+    }
+
+    @Test
+    void shouldRejectNonPositiveLimitsAtStartup() {
+        assertThatThrownBy(() -> new WriteAdmissionFilter(0, 40, 5, new ObjectMapper(), registry))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new WriteAdmissionFilter(20, 0, 5, new ObjectMapper(), registry))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new WriteAdmissionFilter(20, 40, 0, new ObjectMapper(), registry))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldLimitEachClientAndEndpointClassSeparately() throws Exception {
+        WriteAdmissionFilter filter = new WriteAdmissionFilter(1, 2, 10, new ObjectMapper(), registry);
+
+        assertThat(send(filter, "POST", "/users", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(send(filter, "PUT", "/users", "10.0.0.1").getStatus()).isEqualTo(200);
+        MockHttpServletResponse rejected = send(filter, "POST", "/users", "10.0.0.1");
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("1");
+
+        assertThat(send(filter, "POST", "/users", "10.0.0.2").getStatus()).isEqualTo(200);
+        assertThat(send(filter, "PUT", "/users/1/friends/2", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(send(filter, "GET", "/users", "10.0.0.1").getStatus()).isEqualTo(200);
+
+        assertThat(count("users", "accepted")).isEqualTo(3);
+        assertThat(count("users", "rate_limited")).isEqualTo(1);
+        assertThat(count("friends", "accepted")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldShedWritesAboveConcurrencyLimit() throws Exception {
+        WriteAdmissionFilter filter = new WriteAdmissionFilter(1000, 1000, 1, new ObjectMapper(), registry);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain blocking = (request, response) -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        CompletableFuture<Void> inFlight = CompletableFuture.runAsync(() -> {
+            try {
+                filter.doFilter(request("PUT", "/films/1/like/1", "10.0.0.1"), new MockHttpServletResponse(),
+                        blocking);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        started.await();
+
+        assertThat(send(filter, "PUT", "/films/2/like/1", "10.0.0.2").getStatus()).isEqualTo(503);
+        release.countDown();
+        inFlight.get(5, TimeUnit.SECONDS);
+        assertThat(send(filter, "PUT", "/films/2/like/1", "10.0.0.2").getStatus()).isEqualTo(200);
+
+        assertThat(count("likes", "overloaded")).isEqualTo(1);
+        assertThat(count("likes", "accepted")).isEqualTo(2);
+    }
+
+    private MockHttpServletResponse send(WriteAdmissionFilter filter, String method, String path, String client)
+            throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(method, path, client), response, new MockFilterChain());
+        return response;
+    }
+
+    private MockHttpServletRequest request(String method, String path, String client) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr(client);
+        return request;
+    }
+
+    private double count(String endpointClass, String result) {
+        return registry.get("filmorate.http.admission").tag("class", endpointClass).tag("result", result)
+                .counter().count();
+    }
+}
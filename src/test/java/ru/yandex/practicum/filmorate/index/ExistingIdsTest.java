@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dal.FilmRepository;
+import ru.yandex.practicum.filmorate.dal.UserRepository;
+
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExistingIdsTest {
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final FilmRepository filmRepository = mock(FilmRepository.class);
+
+    @Test
+    void shouldAnswerLoadedAndAddedIdsWithoutDatabase() {
+        ExistingIds ids = ids(new int[]{1, 2}, new int[]{10});
+
+        ids.addUser(3);
+        ids.addFilm(11);
+
+        assertThat(ids.userExists(1)).isTrue();
+        assertThat(ids.userExists(3)).isTrue();
+        assertThat(ids.filmExists(10)).isTrue();
+        assertThat(ids.filmExists(11)).isTrue();
+        assertThat(ids.userExists(null)).isFalse();
+        verify(userRepository, never()).existsById(anyInt());
+        verify(filmRepository, never()).existsById(anyInt());
+    }
+
+    @Test
+    void shouldFallBackToCountQueryAndRememberFoundIds() {
+        ExistingIds ids = ids(new int[]{1}, new int[0]);
+        when(userRepository.existsById(5)).thenReturn(true);
+        when(userRepository.existsById(6)).thenReturn(false);
+
+        assertThat(ids.userExists(5)).isTrue();
+        assertThat(ids.userExists(5)).isTrue();
+        assertThat(ids.userExists(6)).isFalse();
+        assertThat(ids.filmExists(7)).isFalse();
+
+        verify(userRepository, times(1)).existsById(5);
+        verify(filmRepository).existsById(7);
+    }
+
+    private ExistingIds ids(int[] userIds, int[] filmIds) {
+        doAnswer(invocation -> {
+            IntConsumer consumer = invocation.getArgument(0);
+            for (int id : userIds) {
+                consumer.accept(id);
+            }
+            return null;
+        }).when(userRepository).forEachId(any());
+        doAnswer(invocation -> {
+            IntConsumer consumer = invocation.getArgument(0);
+            for (int id : filmIds) {
+                consumer.accept(id);
+            }
+            return null;
+        }).when(filmRepository).forEachId(any());
+
+        ExistingIds ids = new ExistingIds(userRepository, filmRepository);
+        ids.reload();
+        return ids;
+    }
+}
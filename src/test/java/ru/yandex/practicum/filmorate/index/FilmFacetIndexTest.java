@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dal.FilmRepository;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class FilmFacetIndexTest {
+
+    @Test
+    void shouldIntersectGenresAndYearsAndUniteMpa() {
+        FilmFacetIndex index = index(
+                film(1, 1, 1994, 1, 2),
+                film(2, 2, 1995, 1),
+                film(3, 3, 1999, 1, 2),
+                film(4, 1, 2003, 2));
+
+        FilmFacetIndex.Selection selection = index.select(List.of(1L, 2L), null, null, null);
+        assertThat(selection.idsAfter(0, 10)).containsExactly(1, 3);
+        assertThat(selection.genres()).isEqualTo(Map.of(1L, 2, 2L, 2));
+        assertThat(selection.mpa()).isEqualTo(Map.of(1L, 1, 3L, 1));
+
+        selection = index.select(List.of(1L), List.of(1L, 2L), 1990, 1999);
+        assertThat(selection.idsAfter(0, 10)).containsExactly(1, 2);
+        assertThat(selection.years()).isEqualTo(Map.of(1994, 1, 1995, 1));
+
+        assertThat(index.select(null, null, 2000, null).idsAfter(0, 10)).containsExactly(4);
+        assertThat(index.select(List.of(6L), null, null, null).total()).isZero();
+    }
+
+    @Test
+    void shouldPageByIdAfterCursor() {
+        FilmFacetIndex index = index(film(1, 1, 2000), film(5, 1, 2000), film(7, 1, 2000), film(9, 2, 2000));
+
+        FilmFacetIndex.Selection selection = index.select(null, List.of(1L), null, null);
+
+        assertThat(selection.total()).isEqualTo(3);
+        assertThat(selection.idsAfter(0, 2)).containsExactly(1, 5);
+        assertThat(selection.idsAfter(5, 2)).containsExactly(7);
+        assertThat(selection.contains(9)).isFalse();
+    }
+
+    @Test
+    void shouldFollowAddedAndUpdatedFilms() {
+        FilmFacetIndex index = index(film(1, 1, 1980, 1));
+
+        index.add(film(2, 2, 1990, 2));
+        index.update(film(1, 3, 1985, 3), true);
+        index.update(film(2, 4, 1990), false);
+
+        assertThat(index.select(List.of(1L), null, null, null).total()).isZero();
+        assertThat(index.select(List.of(3L), List.of(3L), 1985, 1985).idsAfter(0, 10)).containsExactly(1);
+        assertThat(index.select(List.of(2L), List.of(4L), null, null).idsAfter(0, 10)).containsExactly(2);
+        assertThat(index.select(null, List.of(1L, 2L), null, null).total()).isZero();
+    }
+
+    private FilmFacetIndex index(Film... films) {
+        FilmRepository repository = mock(FilmRepository.class);
+        doAnswer(invocation -> {
+            Consumer<Film> consumer = invocation.getArgument(0);
+            for (Film film : films) {
+                consumer.accept(film);
+            }
+            return null;
+        }).when(repository).exportAll(any());
+
+        FilmFacetIndex index = new FilmFacetIndex(repository);
+        index.reload();
+        return index;
+    }
+
+    private Film film(int id, long mpaId, int year, long... genreIds) {
+        Film film = new Film();
+        film.setId(id);
+        film.setReleaseDate(LocalDate.of(year, 1, 1));
+        Mpa mpa = new Mpa();
+        mpa.setId(mpaId);
+        film.setMpa(mpa);
+        Set<Genre> genres = Arrays.stream(genreIds).mapToObj(genreId -> {
+            Genre genre = new Genre();
+            genre.setId(genreId);
+            return genre;
+        }).collect(Collectors.toSet());
+        film.setGenres(genres);
+        return film;
+    }
+}
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dal.FilmRepository;
+
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class FilmRecommenderTest {
+    private FilmRecommender recommender;
+
+    @AfterEach
+    void shutdown() {
+        if (recommender != null) {
+            recommender.shutdown();
+        }
+    }
+
+    @Test
+    void shouldLoadMatrixFromRepository() {
+        FilmRepository repository = mock(FilmRepository.class);
+        doAnswer(invocation -> {
+            BiConsumer<Integer, Integer> consumer = invocation.getArgument(0);
+            consumer.accept(2, 30);
+            consumer.accept(1, 20);
+            consumer.accept(2, 10);
+            return null;
+        }).when(repository).forEachLike(any());
+
+        LikesMatrix matrix = new LikesMatrix(repository);
+        matrix.reload();
+
+        assertThat(matrix.filmsLikedBy(2)).containsExactly(10, 30);
+        assertThat(matrix.usersWhoLiked(20)).containsExactly(1);
+
+        matrix.unlike(2, 10);
+        matrix.like(3, 10);
+
+        assertThat(matrix.filmsLikedBy(2)).containsExactly(30);
+        assertThat(matrix.usersWhoLiked(10)).containsExactly(3);
+    }
+
+    @Test
+    void shouldRankUnseenFilmsBySimilarUsers() {
+        LikesMatrix matrix = new LikesMatrix(mock(FilmRepository.class));
+        // пользователь 1 лайкнул 10, 11, 12
+        like(matrix, 1, 10, 11, 12);
+        // 2 совпадает по трём фильмам, 3 — по одному, 4 — ни по одному
+        like(matrix, 2, 10, 11, 12, 20, 21);
+        like(matrix, 3, 10, 21, 22);
+        like(matrix, 4, 23);
+
+        recommender = new FilmRecommender(matrix, 1000, 10, 2);
+
+        // 21: 3 + 1, 20: 3, 22: 1; фильм 23 соседа без пересечений не попадает
+        assertThat(recommender.recommend(1, 10)).containsExactly(21, 20, 22);
+        assertThat(recommender.recommend(1, 2)).containsExactly(21, 20);
+        assertThat(recommender.recommend(5, 10)).isEmpty();
+    }
+
+    @Test
+    void shouldUseOnlyTopNeighbours() {
+        LikesMatrix matrix = new LikesMatrix(mock(FilmRepository.class));
+        like(matrix, 1, 10, 11);
+        like(matrix, 2, 10, 11, 20);
+        like(matrix, 3, 10, 30);
+
+        recommender = new FilmRecommender(matrix, 1000, 1, 2);
+
+        assertThat(recommender.recommend(1, 10)).containsExactly(20);
+    }
+
+    private static void like(LikesMatrix matrix, int userId, int... filmIds) {
+        for (int filmId : filmIds) {
+            matrix.like(userId, filmId);
+        }
+    }
+}
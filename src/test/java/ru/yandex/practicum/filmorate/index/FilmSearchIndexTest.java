@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dal.FilmRepository;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class FilmSearchIndexTest {
+
+    @Test
+    void shouldMatchPrefixesOfAllTermsInCyrillicAndLatin() {
+        FilmSearchIndex index = index(
+                film(1, "Звёздные войны", "Space opera, Star Wars"),
+                film(2, "Звёздный путь", "Star Trek"),
+                film(3, "Война и мир", "Роман Толстого"));
+
+        assertThat(index.search("ЗВЕЗДН", 10)).containsExactly(1, 2);
+        assertThat(index.search("звёздн вой", 10)).containsExactly(1);
+        assertThat(index.search("star tr", 10)).containsExactly(2);
+        assertThat(index.search("звёздн толст", 10)).isEmpty();
+        assertThat(index.search("  ,. ", 10)).isEmpty();
+    }
+
+    @Test
+    void shouldRankNameAndExactMatchesFirstAndApplyLimit() {
+        FilmSearchIndex index = index(
+                film(1, "Ночь", "Матрица в описании"),
+                film(2, "Матрицы", "Без описания"),
+                film(3, "Матрица", "Перезагрузка"),
+                film(4, "Матрица", "Революция"));
+
+        assertThat(index.search("матриц", 10)).containsExactly(2, 3, 4, 1);
+        assertThat(index.search("матрица", 10)).containsExactly(3, 4, 1);
+        assertThat(index.search("матрица", 2)).containsExactly(3, 4);
+    }
+
+    @Test
+    void shouldFollowAddedAndUpdatedFilms() {
+        FilmSearchIndex index = index(film(1, "Alien", "Space horror"));
+
+        index.add(film(2, "Aliens", "Sequel"));
+        index.update(film(1, "Prometheus", "Space prequel"));
+
+        assertThat(index.search("alien", 10)).containsExactly(2);
+        assertThat(index.search("horror", 10)).isEmpty();
+        assertThat(index.search("space prequel", 10)).containsExactly(1);
+    }
+
+    @Test
+    void shouldKeepOnlyWordsOfLastTextAfterConcurrentUpdates() throws Exception {
+        FilmSearchIndex index = index(film(1, "Alien", "Space horror"));
+        int writers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<?>> updates = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                String name = "title" + (char) ('a' + i);
+                updates.add(executor.submit(() -> {
+                    for (int round = 0; round < 200; round++) {
+                        index.update(film(1, name, "Description"));
+                    }
+                }));
+            }
+            for (Future<?> update : updates) {
+                update.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(index.search("alien", 10)).isEmpty();
+        // после всех изменений фильм находится ровно по одному из названий
+        assertThat(index.search("title", 10)).containsExactly(1);
+        long matchingNames = IntStream.range(0, writers)
+                .filter(i -> !index.search("title" + (char) ('a' + i), 10).isEmpty())
+                .count();
+        assertThat(matchingNames).isEqualTo(1);
+    }
+
+    private FilmSearchIndex index(Film... films) {
+        FilmRepository repository = mock(FilmRepository.class);
+        doAnswer(invocation -> {
+            Consumer<Film> consumer = invocation.getArgument(0);
+            for (Film film : films) {
+                consumer.accept(film);
+            }
+            return null;
+        }).when(repository).forEachText(any());
+
+        FilmSearchIndex index = new FilmSearchIndex(repository);
+        index.reload();
+        return index;
+    }
+
+    private Film film(int id, String name, String description) {
+        Film film = new Film();
+        film.setId(id);
+        film.setName(name);
+        film.setDescription(description);
+        return film;
+    }
+}
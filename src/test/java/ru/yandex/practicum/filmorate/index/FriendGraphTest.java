@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dal.UserRepository;
+
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class FriendGraphTest {
+
+    @Test
+    void shouldLoadFriendshipsAtStartup() {
+        FriendGraph graph = graphWith(new int[][]{{1, 2}, {1, 3}, {2, 3}, {5, 1}});
+
+        assertThat(graph.friendsOf(1)).containsExactly(2, 3);
+        assertThat(graph.friendsOf(2)).containsExactly(3);
+        assertThat(graph.friendsOf(4)).isEmpty();
+        assertThat(graph.friendsOf(100)).isEmpty();
+        assertThat(graph.commonFriends(1, 2)).containsExactly(3);
+    }
+
+    @Test
+    void shouldKeepAdjacencySortedOnUpdates() {
+        FriendGraph graph = graphWith(new int[0][]);
+
+        graph.addFriend(1, 30);
+        graph.addFriend(1, 10);
+        graph.addFriend(1, 20);
+        graph.addFriend(1, 20);
+        graph.addFriend(40, 10);
+
+        assertThat(graph.friendsOf(1)).containsExactly(10, 20, 30);
+        assertThat(graph.areFriends(40, 10)).isTrue();
+        assertThat(graph.commonFriends(1, 40)).containsExactly(10);
+
+        graph.removeFriend(1, 20);
+        graph.removeFriend(1, 99);
+
+        assertThat(graph.friendsOf(1)).containsExactly(10, 30);
+        assertThat(graph.areFriends(1, 20)).isFalse();
+    }
+
+    @Test
+    void shouldIntersectSortedArrays() {
+        assertThat(SortedIntRows.intersect(new int[]{1, 3, 5, 7}, new int[]{2, 3, 4, 7, 9})).containsExactly(3, 7);
+        assertThat(SortedIntRows.intersect(new int[]{}, new int[]{1})).isEmpty();
+    }
+
+    private FriendGraph graphWith(int[][] friendships) {
+        UserRepository userRepository = mock(UserRepository.class);
+        doAnswer(invocation -> {
+            BiConsumer<Integer, Integer> consumer = invocation.getArgument(0);
+            for (int[] pair : friendships) {
+                consumer.accept(pair[0], pair[1]);
+            }
+            return null;
+        }).when(userRepository).forEachFriendship(any());
+
+        FriendGraph graph = new FriendGraph(userRepository);
+        graph.reload();
+        return graph;
+    }
+}
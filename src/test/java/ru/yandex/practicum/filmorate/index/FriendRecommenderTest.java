@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dal.UserRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class FriendRecommenderTest {
+
+    @Test
+    void shouldRankNonFriendsByMutualFriends() {
+        FriendGraph graph = new FriendGraph(mock(UserRepository.class));
+        // у пользователя 1 друзья 2, 3, 4
+        graph.addFriend(1, 2);
+        graph.addFriend(1, 3);
+        graph.addFriend(1, 4);
+        // 5 — друг у троих, 6 — у двоих, 7 — у одного, 4 уже в друзьях
+        graph.addFriend(2, 5);
+        graph.addFriend(3, 5);
+        graph.addFriend(4, 5);
+        graph.addFriend(2, 6);
+        graph.addFriend(3, 6);
+        graph.addFriend(2, 7);
+        graph.addFriend(2, 4);
+        graph.addFriend(3, 1);
+
+        FriendRecommender recommender = new FriendRecommender(graph, 1000);
+
+        assertThat(recommender.recommend(1, 10)).containsExactly(5, 6, 7);
+        assertThat(recommender.recommend(1, 2)).containsExactly(5, 6);
+        assertThat(recommender.recommend(8, 10)).isEmpty();
+    }
+
+    @Test
+    void shouldStopExpansionAtLimit() {
+        FriendGraph graph = new FriendGraph(mock(UserRepository.class));
+        graph.addFriend(1, 2);
+        graph.addFriend(1, 3);
+        for (int candidate = 10; candidate < 20; candidate++) {
+            graph.addFriend(2, candidate);
+            graph.addFriend(3, candidate);
+        }
+
+        FriendRecommender recommender = new FriendRecommender(graph, 5);
+
+        assertThat(recommender.recommend(1, 10)).containsExactly(10, 11, 12, 13, 14);
+    }
+}
@@ -0,0 +1,144 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import ru.yandex.practicum.filmorate.dal.FilmRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PopularityLeaderboardTest {
+    private static final int FILMS = 50;
+    private static final int WRITERS = 8;
+    private static final int OPERATIONS_PER_WRITER = 20_000;
+
+    @Test
+    void shouldRankByLikesThenById() {
+        PopularityLeaderboard leaderboard = leaderboardWith(Map.of(1, 5L, 2, 7L, 3, 5L, 4, 0L));
+
+        assertThat(leaderboard.top(10)).containsExactly(2, 1, 3, 4);
+        assertThat(leaderboard.top(2)).containsExactly(2, 1);
+
+        leaderboard.changeLikes(3, 1);
+        leaderboard.addFilm(5);
+
+        assertThat(leaderboard.top(10)).containsExactly(2, 3, 1, 4, 5);
+    }
+
+    @Test
+    void shouldRankSmallAndLargeSelectionsAlike() {
+        PopularityLeaderboard leaderboard = leaderboardWith(Map.of(1, 5L, 2, 7L, 3, 5L, 4, 0L, 5, 9L));
+
+        // небольшая выборка сортируется кучей
+        assertThat(leaderboard.top(2, RoaringBitmap.bitmapOf(1, 3, 4))).containsExactly(1, 3);
+        assertThat(leaderboard.top(10, RoaringBitmap.bitmapOf(2, 4, 5))).containsExactly(5, 2, 4);
+        assertThat(leaderboard.top(0, RoaringBitmap.bitmapOf(2))).isEmpty();
+        // большая — обходом рейтинга
+        assertThat(leaderboard.top(1, RoaringBitmap.bitmapOf(1, 2, 3, 4, 5))).containsExactly(5);
+        assertThat(leaderboard.top(2, RoaringBitmap.bitmapOf(1, 2, 3, 4))).containsExactly(2, 1);
+    }
+
+    @Test
+    void shouldPageSmallAndLargeSelectionsFromFilmCursor() {
+        PopularityLeaderboard leaderboard = leaderboardWith(Map.of(1, 5L, 2, 7L, 3, 5L, 4, 0L, 5, 9L));
+
+        // небольшая выборка сортируется кучей: 1 (5), 3 (5), 4 (0)
+        RoaringBitmap small = RoaringBitmap.bitmapOf(1, 3, 4);
+        assertThat(leaderboard.top(2, small, 0)).containsExactly(1, 3);
+        assertThat(leaderboard.top(2, small, 3)).containsExactly(4);
+        assertThat(leaderboard.top(2, small, 4)).isEmpty();
+        // большая — обходом рейтинга: 5 (9), 2 (7), 1 (5), 3 (5), 4 (0)
+        RoaringBitmap large = RoaringBitmap.bitmapOf(1, 2, 3, 4, 5);
+        assertThat(leaderboard.top(2, large, 0)).containsExactly(5, 2);
+        assertThat(leaderboard.top(2, large, 2)).containsExactly(1, 3);
+        assertThat(leaderboard.top(2, large, 3)).containsExactly(4);
+    }
+
+    @Test
+    void shouldKeepRankingConsistentUnderConcurrentLikes() throws InterruptedException {
+        Map<Integer, Long> initial = new HashMap<>();
+        IntStream.rangeClosed(1, FILMS).forEach(id -> initial.put(id, 0L));
+        PopularityLeaderboard leaderboard = leaderboardWith(initial);
+
+        AtomicLongArray expected = new AtomicLongArray(FILMS + 1);
+        ConcurrentLinkedQueue<String> readerErrors = new ConcurrentLinkedQueue<>();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService writers = Executors.newFixedThreadPool(WRITERS);
+        ExecutorService readers = Executors.newFixedThreadPool(2);
+
+        for (int w = 0; w < WRITERS; w++) {
+            writers.execute(() -> {
+                await(start);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS_PER_WRITER; i++) {
+                    int filmId = 1 + random.nextInt(FILMS);
+                    int delta = random.nextInt(3) == 0 ? -1 : 1;
+                    leaderboard.changeLikes(filmId, delta);
+                    expected.addAndGet(filmId, delta);
+                }
+            });
+        }
+        for (int r = 0; r < 2; r++) {
+            readers.execute(() -> {
+                await(start);
+                while (running.get()) {
+                    List<Integer> top = leaderboard.top(FILMS);
+                    if (top.size() != FILMS || new HashSet<>(top).size() != FILMS) {
+                        readerErrors.add("Рейтинг потерял или задвоил фильм: " + top);
+                    }
+                }
+            });
+        }
+
+        start.countDown();
+        writers.shutdown();
+        assertThat(writers.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+        running.set(false);
+        readers.shutdown();
+        assertThat(readers.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        List<Integer> expectedRanking = new ArrayList<>(initial.keySet());
+        expectedRanking.sort(Comparator.<Integer>comparingLong(expected::get).reversed()
+                .thenComparingInt(Integer::intValue));
+
+        assertThat(readerErrors).isEmpty();
+        assertThat(leaderboard.top(FILMS)).containsExactlyElementsOf(expectedRanking);
+        IntStream.rangeClosed(1, FILMS).forEach(id ->
+                assertThat(leaderboard.likesOf(id)).isEqualTo(expected.get(id)));
+    }
+
+    private PopularityLeaderboard leaderboardWith(Map<Integer, Long> likesCounts) {
+        FilmRepository filmRepository = mock(FilmRepository.class);
+        when(filmRepository.findLikesCounts()).thenReturn(likesCounts);
+
+        PopularityLeaderboard leaderboard = new PopularityLeaderboard(filmRepository);
+        leaderboard.reload();
+        return leaderboard;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
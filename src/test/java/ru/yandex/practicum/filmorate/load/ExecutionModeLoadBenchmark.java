@@ -0,0 +1,187 @@
+package ru.yandex.practicum.filmorate.load;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Нагрузочное сравнение режимов выполнения запросов (платформенные и виртуальные потоки)
+ * на PUT /films/{id}/like/{userId} и GET /films/popular. Каждый режим поднимает приложение
+ * на случайном порту со своей H2 в памяти.
+ *
+ * <p>В обычный прогон тестов не входит, запускается явно:
+ * {@code mvn test -Dtest=ExecutionModeLoadBenchmark -Dload.clients=400 -Dload.seconds=10}
+ */
+class ExecutionModeLoadBenchmark {
+    private static final int CLIENTS = Integer.getInteger("load.clients", 400);
+    private static final int SECONDS = Integer.getInteger("load.seconds", 10);
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmup-seconds", 3);
+    private static final int USERS = 2000;
+    private static final int FILMS = 500;
+
+    @Test
+    void compareExecutionModes() throws Exception {
+        List<Stats> results = new ArrayList<>();
+        results.addAll(run(false));
+        results.addAll(run(true));
+
+        System.out.printf("%nclients=%d, seconds=%d%n", CLIENTS, SECONDS);
+        System.out.printf("%-9s %-8s %10s %10s %10s %10s %10s %8s%n",
+                "mode", "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "max ms", "503");
+        results.forEach(Stats::print);
+
+        assertThat(results).allSatisfy(stats -> assertThat(stats.errors).isZero());
+    }
+
+    private List<Stats> run(boolean virtualThreads) throws Exception {
+        String mode = virtualThreads ? "virtual" : "platform";
+
+        // аргументы командной строки перекрывают application.properties, в отличие от properties()
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .run(
+                        "--server.port=0",
+                        // сравниваются режимы выполнения, а не допуск: один клиент упёрся бы в лимит лайков
+                        "--filmorate.rate-limit.enabled=false",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--spring.datasource.url=jdbc:h2:mem:load-" + mode + ";DB_CLOSE_DELAY=-1",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.zalando.logbook=WARN");
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .executor(clients)
+                     .build()) {
+            String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            seed(http, base);
+
+            drive(http, base, clients, WARMUP_SECONDS);
+            List<Recorder> recorders = drive(http, base, clients, SECONDS);
+
+            return List.of(
+                    Stats.of(mode, "like", recorders.stream().map(recorder -> recorder.like).toList()),
+                    Stats.of(mode, "popular", recorders.stream().map(recorder -> recorder.popular).toList())
+            );
+        }
+    }
+
+    private static void seed(HttpClient http, String base) throws Exception {
+        String users = IntStream.rangeClosed(1, USERS)
+                .mapToObj(i -> "{\"email\":\"load" + i + "@mail.ru\",\"login\":\"load" + i
+                        + "\",\"birthday\":\"2000-01-01\"}")
+                .collect(Collectors.joining(",", "[", "]"));
+        String films = IntStream.rangeClosed(1, FILMS)
+                .mapToObj(i -> "{\"name\":\"Film " + i + "\",\"description\":\"load\","
+                        + "\"releaseDate\":\"2000-01-01\",\"duration\":100,\"mpa\":{\"id\":1}}")
+                .collect(Collectors.joining(",", "[", "]"));
+
+        for (String[] batch : new String[][]{{"/users/batch", users}, {"/films/batch", films}}) {
+            HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(base + batch[0]))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(batch[1]))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            assertThat(response.statusCode()).isEqualTo(200);
+        }
+    }
+
+    // 80% запросов — лайки случайных фильмов случайными пользователями, 20% — топ популярных
+    private static List<Recorder> drive(HttpClient http, String base, ExecutorService clients, int seconds)
+            throws Exception {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Future<Recorder>> futures = new ArrayList<>();
+
+        for (int client = 0; client < CLIENTS; client++) {
+            futures.add(clients.submit(() -> {
+                Recorder recorder = new Recorder();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    boolean like = random.nextInt(10) < 8;
+                    HttpRequest request = like
+                            ? HttpRequest.newBuilder(URI.create(base + "/films/" + random.nextInt(1, FILMS + 1)
+                                    + "/like/" + random.nextInt(1, USERS + 1)))
+                                    .PUT(HttpRequest.BodyPublishers.noBody())
+                                    .build()
+                            : HttpRequest.newBuilder(URI.create(base + "/films/popular?count=10")).GET().build();
+
+                    long start = System.nanoTime();
+                    int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    (like ? recorder.like : recorder.popular).record(status, System.nanoTime() - start);
+                }
+                return recorder;
+            }));
+        }
+
+        List<Recorder> recorders = new ArrayList<>();
+        for (Future<Recorder> future : futures) {
+            recorders.add(future.get());
+        }
+
+        return recorders;
+    }
+
+    private static final class Recorder {
+        private final Samples like = new Samples();
+        private final Samples popular = new Samples();
+    }
+
+    private static final class Samples {
+        private long[] latencies = new long[1024];
+        private int size;
+        private int rejected;
+        private int errors;
+
+        void record(int status, long latencyNanos) {
+            if (status == 503) {
+                rejected++;
+            } else if (status >= 300) {
+                errors++;
+            }
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latencyNanos;
+        }
+    }
+
+    private record Stats(String mode, String endpoint, long[] latencies, int rejected, int errors) {
+        static Stats of(String mode, String endpoint, List<Samples> samples) {
+            long[] all = samples.stream()
+                    .flatMapToLong(sample -> Arrays.stream(sample.latencies, 0, sample.size))
+                    .sorted()
+                    .toArray();
+            return new Stats(mode, endpoint, all,
+                    samples.stream().mapToInt(sample -> sample.rejected).sum(),
+                    samples.stream().mapToInt(sample -> sample.errors).sum());
+        }
+
+        void print() {
+            System.out.printf("%-9s %-8s %10d %10.0f %10.2f %10.2f %10.2f %8d%n",
+                    mode, endpoint, latencies.length, latencies.length / (double) SECONDS,
+                    percentile(0.50), percentile(0.99), percentile(1.0), rejected);
+        }
+
+        private double percentile(double quantile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.min(latencies.length - 1, Math.ceil(quantile * latencies.length) - 1);
+            return latencies[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package ru.yandex.practicum.filmorate.repositoty;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.config.FeedRepositoryTestConfig;
+import ru.yandex.practicum.filmorate.config.StatementCounts;
+import ru.yandex.practicum.filmorate.dal.FeedEventWriter;
+import ru.yandex.practicum.filmorate.dal.FeedRepository;
+import ru.yandex.practicum.filmorate.model.CursorPage;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import(FeedRepositoryTestConfig.class)
+class FeedRepositoryTest {
+
+    @Autowired
+    private FeedRepository feedRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void shouldWriteEventsInBatchesInOrderOfAppend() {
+        int userId = insertUser("writer@mail.ru", "writer");
+        // очередь на два события: третье заставит вызывающий поток сбросить её
+        FeedEventWriter writer = new FeedEventWriter(feedRepository, 2, 10);
+
+        writer.append(event(userId, FeedEvent.Operation.ADD, 1));
+        writer.append(event(userId, FeedEvent.Operation.REMOVE, 1));
+        assertThat(eventsCount()).isZero();
+
+        writer.append(event(userId, FeedEvent.Operation.ADD, 2));
+        assertThat(eventsCount()).isEqualTo(2);
+        writer.flush();
+
+        assertThat(writer.size()).isZero();
+        assertThat(feedRepository.findPage(new int[]{userId}, Integer.MAX_VALUE, 10).getItems())
+                .extracting(FeedEvent::getOperation, FeedEvent::getEntityId)
+                .containsExactly(
+                        tuple(FeedEvent.Operation.ADD, 2),
+                        tuple(FeedEvent.Operation.REMOVE, 1),
+                        tuple(FeedEvent.Operation.ADD, 1));
+    }
+
+    @Test
+    void shouldPageMergedFeedFromNewestToOldest() {
+        int first = insertUser("first@mail.ru", "first");
+        int second = insertUser("second@mail.ru", "second");
+        int other = insertUser("other@mail.ru", "other");
+        FeedEventWriter writer = new FeedEventWriter(feedRepository, 100, 10);
+        for (int entityId = 1; entityId <= 3; entityId++) {
+            writer.append(event(first, FeedEvent.Operation.ADD, entityId));
+            writer.append(event(second, FeedEvent.Operation.ADD, entityId));
+            writer.append(event(other, FeedEvent.Operation.ADD, entityId));
+        }
+        writer.flush();
+
+        CursorPage<FeedEvent> page = feedRepository.findPage(new int[]{first, second}, Integer.MAX_VALUE, 4);
+        assertThat(page.getItems()).extracting(FeedEvent::getUserId).containsExactly(second, first, second, first);
+        assertThat(page.getNextCursor()).isEqualTo(page.getItems().getLast().getEventId());
+
+        CursorPage<FeedEvent> last = feedRepository.findPage(new int[]{first, second}, page.getNextCursor(), 4);
+        assertThat(last.getItems()).extracting(FeedEvent::getEntityId).containsExactly(1, 1);
+        assertThat(last.getNextCursor()).isNull();
+
+        assertThat(feedRepository.findPage(new int[0], Integer.MAX_VALUE, 4).getItems()).isEmpty();
+    }
+
+    @Test
+    void shouldMergeFeedOfManyFriendsFromCursor() throws Exception {
+        // друзей больше, чем пользователей в одном запросе: страница собирается из двух запросов
+        int[] friends = new int[20];
+        for (int i = 0; i < friends.length; i++) {
+            friends[i] = insertUser("friend" + i + "@mail.ru", "friend" + i);
+        }
+        int stranger = insertUser("stranger@mail.ru", "stranger");
+        FeedEventWriter writer = new FeedEventWriter(feedRepository, 1000, 100);
+        for (int entityId = 1; entityId <= 5; entityId++) {
+            for (int friend : friends) {
+                writer.append(event(friend, FeedEvent.Operation.ADD, entityId));
+                writer.append(event(stranger, FeedEvent.Operation.ADD, entityId));
+            }
+        }
+        writer.flush();
+        int before = jdbcTemplate.queryForObject(
+                "SELECT id FROM feed_events WHERE user_id <> ? ORDER BY id DESC OFFSET 30 ROWS FETCH FIRST 1 ROW ONLY",
+                Integer.class, stranger);
+
+        AtomicReference<CursorPage<FeedEvent>> page = new AtomicReference<>();
+        int statements = StatementCounts.count(() -> page.set(feedRepository.findPage(friends, before, 25)));
+
+        assertThat(statements).isEqualTo(2);
+        assertThat(page.get().getItems()).extracting(FeedEvent::getEventId).containsExactlyElementsOf(
+                jdbcTemplate.queryForList("SELECT id FROM feed_events WHERE user_id <> ? AND id < ? "
+                        + "ORDER BY id DESC LIMIT 25", Integer.class, stranger, before));
+        assertThat(page.get().getNextCursor()).isEqualTo(page.get().getItems().getLast().getEventId());
+    }
+
+    private FeedEvent event(int userId, FeedEvent.Operation operation, int filmId) {
+        return new FeedEvent(null, userId, FeedEvent.Type.LIKE, operation, filmId, Instant.now());
+    }
+
+    private int insertUser(String email, String login) {
+        jdbcTemplate.update("INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)",
+                email, login, login, "2000-01-01");
+        return jdbcTemplate.queryForObject("SELECT id FROM users WHERE login = ?", Integer.class, login);
+    }
+
+    private int eventsCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM feed_events", Integer.class);
+    }
+}
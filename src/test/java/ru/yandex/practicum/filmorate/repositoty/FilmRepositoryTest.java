@@ -1,21 +1,30 @@
 package ru.yandex.practicum.filmorate.repositoty;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import ru.yandex.practicum.filmorate.config.FilmRepositoryTestConfig;
+import ru.yandex.practicum.filmorate.config.StatementCounts;
 import ru.yandex.practicum.filmorate.dal.FilmRepository;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
 
 @JdbcTest
 @AutoConfigureTestDatabase
@@ -28,6 +37,9 @@ class FilmRepositoryTest {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Test
     void shouldSaveAndFindFilmById() {
         Film film = createFilm();
@@ -63,6 +75,17 @@ class FilmRepositoryTest {
         assertThat(updatedFilm.getName()).isEqualTo("Updated name");
     }
 
+    @Test
+    void shouldCheckExistenceWithoutLoadingFilm() {
+        Film film = filmRepository.save(createFilm());
+        List<Integer> ids = new ArrayList<>();
+        filmRepository.forEachId(ids::add);
+
+        assertThat(ids).containsExactly(film.getId());
+        assertThat(filmRepository.existsById(film.getId())).isTrue();
+        assertThat(filmRepository.existsById(Integer.MAX_VALUE)).isFalse();
+    }
+
     @Test
     void shouldReturnMostLikedFilms() {
         // создаём пользователя
@@ -71,9 +94,13 @@ class FilmRepositoryTest {
                 "test@mail.ru", "login", "name", LocalDate.of(2000, 1, 1)
         );
 
+        // id не обязательно 1: тесты откатываются, но identity-счётчик users при откате не сбрасывается
+        Integer userId = jdbcTemplate.queryForObject(
+                "SELECT id FROM users WHERE login = ?", Integer.class, "login");
+
         Film film = filmRepository.save(createFilm());
 
-        filmRepository.likeFilm(film.getId(), 1);
+        filmRepository.likeFilm(film.getId(), userId);
 
         List<Film> popularFilms = filmRepository.findMostLikedFilms(10);
 
@@ -84,6 +111,177 @@ class FilmRepositoryTest {
                 .isEqualTo(film.getId());
     }
 
+    @Test
+    void shouldPageFilmsByKeyset() {
+        Film first = filmRepository.save(createFilm());
+        Film second = filmRepository.save(createFilm());
+        Film third = filmRepository.save(createFilm());
+
+        CursorPage<Film> firstPage = filmRepository.findPage(0, 2);
+
+        assertThat(firstPage.getItems())
+                .extracting(Film::getId)
+                .containsExactly(first.getId(), second.getId());
+        assertThat(firstPage.getNextCursor()).isEqualTo(second.getId());
+
+        CursorPage<Film> lastPage = filmRepository.findPage(firstPage.getNextCursor(), 2);
+
+        assertThat(lastPage.getItems())
+                .extracting(Film::getId)
+                .containsExactly(third.getId());
+        assertThat(lastPage.getNextCursor()).isNull();
+    }
+
+    @Test
+    void shouldExportFilmsWithMergedGenres() {
+        Film withGenres = filmRepository.save(createFilm());
+        Film withoutGenres = filmRepository.save(createFilm());
+        Film withOneGenre = filmRepository.save(createFilm());
+        jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)", withGenres.getId(), 1);
+        jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)", withGenres.getId(), 3);
+        jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)", withOneGenre.getId(), 2);
+
+        List<Film> exported = new ArrayList<>();
+        filmRepository.exportAll(exported::add);
+
+        assertThat(exported)
+                .extracting(Film::getId)
+                .containsExactly(withGenres.getId(), withoutGenres.getId(), withOneGenre.getId());
+        assertThat(exported.get(0).getGenres()).extracting(Genre::getId).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(exported.get(1).getGenres()).isEmpty();
+        assertThat(exported.get(2).getGenres()).extracting(Genre::getName).containsExactly("Драма");
+        assertThat(exported.get(2).getMpa().getName()).isEqualTo("G");
+    }
+
+    @Test
+    void shouldFindFilmsByIdsInRequestedOrder() {
+        Film first = filmRepository.save(createFilm());
+        Film second = filmRepository.save(createFilm());
+
+        List<Film> films = filmRepository.findByIds(List.of(second.getId(), -1, first.getId()));
+
+        assertThat(films)
+                .extracting(Film::getId)
+                .containsExactly(second.getId(), first.getId());
+        assertThat(films.getFirst().getMpa().getName()).isEqualTo("G");
+    }
+
+    @Test
+    void shouldMaintainLikesCountOnlyOnActualChanges() {
+        Integer userId = insertUser("test@mail.ru", "login");
+        Film film = filmRepository.save(createFilm());
+
+        assertThat(filmRepository.likeFilm(film.getId(), userId)).isTrue();
+        assertThat(filmRepository.likeFilm(film.getId(), userId)).isFalse();
+        assertThat(likesCount(film.getId())).isEqualTo(1);
+
+        assertThat(filmRepository.removeLike(film.getId(), userId)).isTrue();
+        assertThat(filmRepository.removeLike(film.getId(), userId)).isFalse();
+        assertThat(likesCount(film.getId())).isZero();
+    }
+
+    @Test
+    void shouldReconcileDriftedLikesCount() {
+        Integer userId = insertUser("test@mail.ru", "login");
+        Film film = filmRepository.save(createFilm());
+        filmRepository.likeFilm(film.getId(), userId);
+        jdbcTemplate.update("UPDATE films SET likes_count = 42 WHERE id = ?", film.getId());
+
+        assertThat(filmRepository.reconcileLikesCount()).containsExactly(entry(film.getId(), -41L));
+        assertThat(likesCount(film.getId())).isEqualTo(1);
+    }
+
+    @Test
+    void shouldLoadGenresAndMpaWithFilms() {
+        Film film = filmRepository.save(createFilm());
+        jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)", film.getId(), 1);
+        jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)", film.getId(), 2);
+
+        Film loaded = filmRepository.findAll().getFirst();
+
+        assertThat(loaded.getMpa().getName()).isEqualTo("G");
+        assertThat(loaded.getGenres())
+                .extracting(Genre::getId)
+                .containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void shouldUseConstantNumberOfStatementsForListReads() throws Exception {
+        saveFilmsWithGenre(1);
+        int findAllForOne = StatementCounts.count(filmRepository::findAll);
+        int popularForOne = StatementCounts.count(() -> filmRepository.findMostLikedFilms(100));
+
+        saveFilmsWithGenre(20);
+        int findAllForMany = StatementCounts.count(filmRepository::findAll);
+        int popularForMany = StatementCounts.count(() -> filmRepository.findMostLikedFilms(100));
+
+        assertThat(findAllForMany).isEqualTo(findAllForOne).isLessThanOrEqualTo(2);
+        assertThat(popularForMany).isEqualTo(popularForOne).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void shouldRecordQueryMetricsByQueryName() {
+        // реестр общий для закешированного контекста, поэтому сравниваем приращения
+        Film saved = filmRepository.save(createFilm());
+        long callsBefore = findByIdTimer().count();
+        double rowsBefore = findByIdRows();
+        double errorsBefore = insertLikeErrors();
+
+        filmRepository.findById(saved.getId());
+        filmRepository.findById(Integer.MAX_VALUE);
+        assertThatThrownBy(() -> filmRepository.likeFilm(Integer.MAX_VALUE, Integer.MAX_VALUE))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        assertThat(findByIdTimer().count() - callsBefore).isEqualTo(2);
+        assertThat(findByIdRows() - rowsBefore).isEqualTo(1);
+        assertThat(insertLikeErrors() - errorsBefore).isEqualTo(1);
+    }
+
+    @Test
+    void shouldSaveFilmsInBatchesWithGenres() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Film film = createFilm();
+            film.setName("Batch film " + i);
+            Genre genre = new Genre();
+            genre.setId((long) (i % 2 + 1));
+            film.getGenres().add(genre);
+            films.add(film);
+        }
+
+        // размер пакета 2: три пакета, id должны идти в порядке фильмов
+        List<Film> saved = filmRepository.saveAll(films, 2);
+
+        List<Integer> ids = saved.stream().map(Film::getId).toList();
+        assertThat(ids).doesNotContainNull().isSorted().doesNotHaveDuplicates();
+        assertThat(filmRepository.findByIds(ids))
+                .extracting(Film::getName)
+                .containsExactly("Batch film 0", "Batch film 1", "Batch film 2", "Batch film 3", "Batch film 4");
+        assertThat(filmRepository.findById(ids.get(1)).orElseThrow().getGenres())
+                .extracting(Genre::getId)
+                .containsExactly(2L);
+    }
+
+    private Integer insertUser(String email, String login) {
+        jdbcTemplate.update(
+                "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)",
+                email, login, "name", LocalDate.of(2000, 1, 1)
+        );
+
+        return jdbcTemplate.queryForObject("SELECT id FROM users WHERE login = ?", Integer.class, login);
+    }
+
+    private int likesCount(Integer filmId) {
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE id = ?", Integer.class, filmId);
+    }
+
+    private void saveFilmsWithGenre(int count) {
+        for (int i = 0; i < count; i++) {
+            Film film = filmRepository.save(createFilm());
+            jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)", film.getId(), 1);
+        }
+    }
+
     private Film createFilm() {
         Film film = new Film();
         film.setName("Test film");
@@ -97,4 +295,18 @@ class FilmRepositoryTest {
 
         return film;
     }
+
+    private Timer findByIdTimer() {
+        return meterRegistry.timer("filmorate.db.query",
+                "query", "FilmRepository.FIND_BY_ID_QUERY", "outcome", "success");
+    }
+
+    private double findByIdRows() {
+        return meterRegistry.summary("filmorate.db.rows", "query", "FilmRepository.FIND_BY_ID_QUERY").totalAmount();
+    }
+
+    private double insertLikeErrors() {
+        return meterRegistry.counter("filmorate.db.errors",
+                "query", "FilmRepository.INSERT_LIKE", "exception", "DataIntegrityViolationException").count();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,176 @@
+package ru.yandex.practicum.filmorate.repositoty;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.config.FilmRepositoryTestConfig;
+import ru.yandex.practicum.filmorate.dal.FilmRepository;
+import ru.yandex.practicum.filmorate.dal.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import(FilmRepositoryTestConfig.class)
+class LikeWriteBufferTest {
+
+    @Autowired
+    private FilmRepository filmRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // состояние лайков в памяти, как его видит сервис
+    private final Set<List<Integer>> liked = new HashSet<>();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private LikeWriteBuffer buffer;
+
+    @AfterEach
+    void shutdown() {
+        buffer.shutdown();
+    }
+
+    @Test
+    void shouldCoalesceOperationsOnSamePair() {
+        buffer = buffer(100);
+        Integer filmId = saveFilm();
+        Integer userId = insertUser("coalesce@mail.ru", "coalesce");
+
+        assertThat(like(filmId, userId)).isTrue();
+        assertThat(like(filmId, userId)).isFalse();
+        assertThat(unlike(filmId, userId)).isTrue();
+        // лайк и снятие лайка взаимно уничтожились, в БД писать нечего
+        assertThat(buffer.size()).isZero();
+
+        assertThat(like(filmId, userId)).isTrue();
+        assertThat(buffer.size()).isEqualTo(1);
+        assertThat(likesCount(filmId)).isZero();
+
+        buffer.flush();
+
+        assertThat(buffer.size()).isZero();
+        assertThat(likesCount(filmId)).isEqualTo(1);
+        assertThat(likeRows(filmId)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldFlushItselfWhenFull() {
+        buffer = buffer(2);
+        Integer filmId = saveFilm();
+        Integer first = insertUser("full1@mail.ru", "full1");
+        Integer second = insertUser("full2@mail.ru", "full2");
+        Integer third = insertUser("full3@mail.ru", "full3");
+
+        like(filmId, first);
+        like(filmId, second);
+        assertThat(likesCount(filmId)).isZero();
+
+        // третьей паре места нет: вызывающий поток сам сбрасывает буфер
+        like(filmId, third);
+
+        assertThat(likesCount(filmId)).isEqualTo(2);
+        assertThat(buffer.size()).isEqualTo(1);
+
+        buffer.shutdown();
+
+        assertThat(likesCount(filmId)).isEqualTo(3);
+    }
+
+    @Test
+    void shouldChangeLikesCountOnlyForActualChanges() {
+        buffer = buffer(100);
+        Integer filmId = saveFilm();
+        Integer userId = insertUser("actual@mail.ru", "actual");
+        Integer otherId = insertUser("actual2@mail.ru", "actual2");
+        filmRepository.likeFilm(filmId, userId);
+
+        // лайк уже есть в БД, а удаляемого лайка нет
+        filmRepository.applyLikeChanges(
+                List.<Object[]>of(new Object[]{filmId, userId}),
+                List.<Object[]>of(new Object[]{filmId, otherId}),
+                10
+        );
+
+        assertThat(likesCount(filmId)).isEqualTo(1);
+        assertThat(likeRows(filmId)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldUndoInMemoryOperationThatCannotBeWritten() {
+        buffer = buffer(100);
+        Integer userId = insertUser("dropped@mail.ru", "dropped");
+        Integer missingFilmId = 1_000_000;
+        List<List<Object>> undone = new ArrayList<>();
+        buffer.onDropped((filmId, user, wasLiked) -> {
+            liked.remove(List.of(filmId, user));
+            undone.add(List.of(filmId, user, wasLiked));
+        });
+
+        // фильма нет в БД: пакет и все повторы по одной падают на внешнем ключе
+        assertThat(like(missingFilmId, userId)).isTrue();
+        buffer.flush();
+
+        assertThat(buffer.size()).isZero();
+        assertThat(liked).isEmpty();
+        assertThat(undone).containsExactly(List.of(missingFilmId, userId, true));
+        assertThat(registry.counter("filmorate.likes.write-behind.dropped").count()).isEqualTo(1);
+    }
+
+    private LikeWriteBuffer buffer(int capacity) {
+        return new LikeWriteBuffer(filmRepository, registry, true, capacity, 100, 3, Duration.ofMillis(1), 10);
+    }
+
+    private boolean like(Integer filmId, Integer userId) {
+        return buffer.submit(filmId, userId, true, () -> liked.add(List.of(filmId, userId)));
+    }
+
+    private boolean unlike(Integer filmId, Integer userId) {
+        return buffer.submit(filmId, userId, false, () -> liked.remove(List.of(filmId, userId)));
+    }
+
+    private Integer saveFilm() {
+        Film film = new Film();
+        film.setName("Buffered film");
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(120);
+
+        Mpa mpa = new Mpa();
+        mpa.setId(1L);
+        film.setMpa(mpa);
+
+        return filmRepository.save(film).getId();
+    }
+
+    private Integer insertUser(String email, String login) {
+        jdbcTemplate.update(
+                "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)",
+                email, login, "name", LocalDate.of(2000, 1, 1)
+        );
+
+        return jdbcTemplate.queryForObject("SELECT id FROM users WHERE login = ?", Integer.class, login);
+    }
+
+    private int likesCount(Integer filmId) {
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE id = ?", Integer.class, filmId);
+    }
+
+    private int likeRows(Integer filmId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes WHERE film_id = ?", Integer.class, filmId);
+    }
+}
@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.repositoty;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SchemaMigrationTest {
+    private final SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+            "jdbc:h2:mem:migration-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", "", true);
+    private final JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+    @AfterEach
+    void shutdown() {
+        jdbc.execute("SHUTDOWN");
+        dataSource.destroy();
+    }
+
+    @Test
+    void shouldKeepDataOfDatabaseCreatedBeforeMigrations() {
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__create_schema.sql")).execute(dataSource);
+        jdbc.update("INSERT INTO mpa(id, name) VALUES (1, 'G')");
+        jdbc.update("INSERT INTO users(email, login, name, birthday) VALUES ('a@mail.ru', 'a', 'A', '2000-01-01')");
+
+        int pending = flyway().info().pending().length;
+        assertThat(flyway().migrate().migrationsExecuted).isEqualTo(pending);
+
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM users", Integer.class)).isEqualTo(1);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM mpa", Integer.class)).isEqualTo(5);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM genres", Integer.class)).isEqualTo(6);
+    }
+
+    @Test
+    void shouldCountLikesOfFilmsCreatedBeforeLikesCount() {
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__create_schema.sql")).execute(dataSource);
+        jdbc.update("INSERT INTO mpa(id, name) VALUES (1, 'G')");
+        jdbc.update("INSERT INTO users(id, email, login, name, birthday) VALUES (1, 'a@mail.ru', 'a', 'A', '2000-01-01')");
+        jdbc.update("INSERT INTO users(id, email, login, name, birthday) VALUES (2, 'b@mail.ru', 'b', 'B', '2000-01-01')");
+        jdbc.update("INSERT INTO films(id, name, mpa_id) VALUES (1, 'Фильм 1', 1)");
+        jdbc.update("INSERT INTO films(id, name, mpa_id) VALUES (2, 'Фильм 2', 1)");
+        jdbc.update("INSERT INTO likes(user_id, film_id) VALUES (1, 1), (2, 1), (2, 2)");
+
+        flyway().migrate();
+
+        assertThat(jdbc.queryForList("SELECT likes_count FROM films ORDER BY id", Integer.class))
+                .containsExactly(2, 1);
+    }
+
+    @Test
+    void shouldApplyOnlyMissingVersionsOnRestart() {
+        String latest = flyway().migrate().targetSchemaVersion;
+        jdbc.update("INSERT INTO users(email, login, name, birthday) VALUES ('a@mail.ru', 'a', 'A', '2000-01-01')");
+
+        assertThat(flyway().migrate().migrationsExecuted).isZero();
+
+        assertThat(flyway().info().current().getVersion().getVersion()).isEqualTo(latest);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM users", Integer.class)).isEqualTo(1);
+    }
+
+    // Настройки как в application.properties
+    private Flyway flyway() {
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load();
+    }
+}
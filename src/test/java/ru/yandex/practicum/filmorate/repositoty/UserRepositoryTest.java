@@ -8,9 +8,12 @@ import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
 import ru.yandex.practicum.filmorate.config.UserRepositoryTestConfig;
 import ru.yandex.practicum.filmorate.dal.UserRepository;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -48,6 +51,51 @@ class UserRepositoryTest {
                 .hasSize(1);
     }
 
+    @Test
+    void shouldPageUsersByKeyset() {
+        User user1 = userRepository.save(createUser());
+        User user2 = userRepository.save(createSecondUser());
+
+        CursorPage<User> firstPage = userRepository.findPage(0, 1);
+
+        assertThat(firstPage.getItems())
+                .extracting(User::getId)
+                .containsExactly(user1.getId());
+        assertThat(firstPage.getNextCursor()).isEqualTo(user1.getId());
+
+        CursorPage<User> lastPage = userRepository.findPage(firstPage.getNextCursor(), 1);
+
+        assertThat(lastPage.getItems())
+                .extracting(User::getId)
+                .containsExactly(user2.getId());
+        assertThat(lastPage.getNextCursor()).isNull();
+    }
+
+    @Test
+    void shouldExportAllUsers() {
+        User user1 = userRepository.save(createUser());
+        User user2 = userRepository.save(createSecondUser());
+
+        List<User> exported = new ArrayList<>();
+        userRepository.exportAll(exported::add);
+
+        assertThat(exported)
+                .extracting(User::getId)
+                .containsExactly(user1.getId(), user2.getId());
+    }
+
+    @Test
+    void shouldFindUsersByIds() {
+        User user1 = userRepository.save(createUser());
+        userRepository.save(createSecondUser());
+        User user3 = userRepository.save(createThirdUser());
+
+        assertThat(userRepository.findByIds(new int[]{user3.getId(), user1.getId()}))
+                .extracting(User::getId)
+                .containsExactly(user1.getId(), user3.getId());
+        assertThat(userRepository.findByIds(new int[0])).isEmpty();
+    }
+
     @Test
     void shouldUpdateUser() {
         User user = userRepository.save(createUser());
@@ -96,6 +144,21 @@ class UserRepositoryTest {
                 .contains(common.getId());
     }
 
+    @Test
+    void shouldSaveUsersInBatchesAndFindTakenEmailsAndLogins() {
+        List<User> users = List.of(createUser(), createSecondUser(), createThirdUser());
+
+        userRepository.saveAll(users, 2);
+
+        assertThat(users).extracting(User::getId).doesNotContainNull().isSorted();
+        assertThat(userRepository.findById(users.get(2).getId()))
+                .hasValueSatisfying(user -> assertThat(user.getLogin()).isEqualTo(users.get(2).getLogin()));
+        assertThat(userRepository.findTakenEmails(List.of("test@mail.ru", "free@mail.ru")))
+                .containsExactly("test@mail.ru");
+        assertThat(userRepository.findTakenLogins(List.of("free", "login2")))
+                .containsExactly("login2");
+    }
+
     private User createUser() {
         User user = new User();
         user.setEmail("test@mail.ru");
@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import ru.yandex.practicum.filmorate.cache.FilmJsonCache;
+import ru.yandex.practicum.filmorate.cache.FilmVersions;
+import ru.yandex.practicum.filmorate.config.ConcurrentCalls;
+import ru.yandex.practicum.filmorate.dal.FilmRepository;
+import ru.yandex.practicum.filmorate.dal.GenreRepository;
+import ru.yandex.practicum.filmorate.dal.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.index.ExistingIds;
+import ru.yandex.practicum.filmorate.index.FilmFacetIndex;
+import ru.yandex.practicum.filmorate.index.FilmRecommender;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.LikesMatrix;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FilmServiceTest {
+    private static final int CALLERS = 8;
+
+    private final FilmRepository filmRepository = mock(FilmRepository.class);
+    private final PopularityLeaderboard leaderboard = new PopularityLeaderboard(filmRepository);
+    private final FilmFacetIndex facetIndex = mock(FilmFacetIndex.class);
+    private final FilmService filmService = new FilmService(filmRepository, mock(MpaService.class),
+            mock(GenreRepository.class), leaderboard, new PageLimits(100, 1000), mock(LikesMatrix.class),
+            mock(FilmRecommender.class), mock(GenreService.class), mock(BatchLimits.class), mock(Validator.class),
+            mock(LikeWriteBuffer.class), new FilmVersions(), mock(FilmJsonCache.class), mock(FilmSearchIndex.class),
+            facetIndex, mock(ExistingIds.class), mock(FeedService.class));
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void release() {
+        release.countDown();
+    }
+
+    @Test
+    void shouldLoadFilmOnceForConcurrentReadersAndHandEachItsOwnCopy() throws Exception {
+        Film film = film(1);
+        when(filmRepository.findById(1)).thenAnswer(invocation -> {
+            release.await();
+            return Optional.of(film);
+        });
+
+        List<Optional<Film>> results = ConcurrentCalls.run(CALLERS, release, () -> filmService.findById(1));
+
+        verify(filmRepository, times(1)).findById(1);
+        assertThat(results).allSatisfy(result -> assertThat(result).contains(film));
+        assertThat(distinct(results.stream().map(Optional::get).toList())).hasSize(CALLERS);
+    }
+
+    @Test
+    void shouldLoadPopularFilmsOnceForConcurrentReaders() throws Exception {
+        when(filmRepository.findLikesCounts()).thenReturn(Map.of(1, 5L, 2, 3L));
+        leaderboard.reload();
+        when(filmRepository.findByIds(anyList())).thenAnswer(invocation -> {
+            release.await();
+            return List.of(film(1), film(2));
+        });
+
+        List<List<Film>> results = ConcurrentCalls.run(CALLERS, release,
+                () -> filmService.getFilmWithTheMostLikes(2));
+
+        verify(filmRepository, times(1)).findByIds(List.of(1, 2));
+        assertThat(results).allSatisfy(films -> assertThat(films).containsExactly(film(1), film(2)));
+        assertThat(distinct(results.stream().map(films -> films.get(0)).toList())).hasSize(CALLERS);
+    }
+
+    @Test
+    void shouldPageThroughPopularSortedFacet() {
+        when(filmRepository.findLikesCounts()).thenReturn(Map.of(1, 5L, 2, 7L, 3, 5L, 4, 0L, 5, 9L));
+        leaderboard.reload();
+        when(facetIndex.select(any(), any(), any(), any())).thenReturn(new FilmFacetIndex.Selection(
+                RoaringBitmap.bitmapOf(1, 2, 3, 4), new TreeMap<>(), new TreeMap<>(), new TreeMap<>()));
+        when(filmRepository.findByIds(anyList())).thenAnswer(invocation ->
+                invocation.<List<Integer>>getArgument(0).stream().map(FilmServiceTest::film).toList());
+
+        List<List<Integer>> pages = new ArrayList<>();
+        Integer after = null;
+        List<Integer> page;
+        do {
+            page = filmService.findFaceted(null, null, null, null, "popular", after, 2).getFilms().stream()
+                    .map(Film::getId)
+                    .toList();
+            pages.add(page);
+            after = page.isEmpty() ? null : page.getLast();
+        } while (!page.isEmpty());
+
+        // фильм 5 самый популярный, но не входит в выборку
+        assertThat(pages).containsExactly(List.of(2, 1), List.of(3, 4), List.of());
+    }
+
+    private static Set<Film> distinct(List<Film> films) {
+        Set<Film> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        distinct.addAll(films);
+        return distinct;
+    }
+
+    private static Film film(int id) {
+        Film film = new Film();
+        film.setId(id);
+        film.setName("Фильм " + id);
+        return film;
+    }
+}
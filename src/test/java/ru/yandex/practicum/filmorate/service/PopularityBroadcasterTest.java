@@ -0,0 +1,127 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.dal.FilmRepository;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PopularityBroadcasterTest {
+
+    @Test
+    void shouldSendSnapshotThenOneCoalescedDiffToEverySubscriber() {
+        PopularityLeaderboard leaderboard = leaderboardWith(Map.of(1, 5L, 2, 3L, 3, 1L));
+        PopularityBroadcaster broadcaster = broadcaster(leaderboard, 2);
+        CapturingEmitter first = new CapturingEmitter();
+        CapturingEmitter second = new CapturingEmitter();
+
+        broadcaster.subscribe(first);
+        broadcaster.subscribe(second);
+        leaderboard.changeLikes(3, 2);
+        leaderboard.changeLikes(3, 2);
+        broadcaster.publish();
+        broadcaster.publish();
+
+        String snapshot = "event:snapshot\ndata:[{\"filmId\":1,\"rank\":1,\"likes\":5},"
+                + "{\"filmId\":2,\"rank\":2,\"likes\":3}]\n\n";
+        String ranks = "event:ranks\ndata:{\"changed\":[{\"filmId\":3,\"rank\":2,\"likes\":5}],\"removed\":[2]}\n\n";
+        assertThat(first.events).containsExactly(snapshot, ranks);
+        assertThat(second.events).containsExactly(snapshot, ranks);
+    }
+
+    @Test
+    void shouldSkipPublishingWhenTopIsUnchanged() {
+        PopularityLeaderboard leaderboard = leaderboardWith(Map.of(1, 5L, 2, 3L, 3, 1L));
+        PopularityBroadcaster broadcaster = broadcaster(leaderboard, 2);
+        CapturingEmitter emitter = new CapturingEmitter();
+
+        broadcaster.subscribe(emitter);
+        leaderboard.changeLikes(3, 1);
+        broadcaster.publish();
+
+        assertThat(emitter.events).hasSize(1);
+        assertThat(broadcaster.subscriberCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldDropStalledSubscriberWithoutDelayingOthers() throws Exception {
+        PopularityLeaderboard leaderboard = leaderboardWith(Map.of(1, 5L, 2, 3L, 3, 1L));
+        PopularityBroadcaster broadcaster = broadcaster(leaderboard, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        CapturingEmitter stalled = new CapturingEmitter(release);
+        CapturingEmitter healthy = new CapturingEmitter();
+
+        broadcaster.subscribe(stalled);
+        broadcaster.subscribe(healthy);
+        leaderboard.changeLikes(3, 4);
+        try {
+            broadcaster.publish();
+
+            assertThat(healthy.events).hasSize(2);
+            assertThat(broadcaster.subscriberCount()).isEqualTo(1);
+
+            // подписка не ждёт зависшую запись
+            CapturingEmitter late = new CapturingEmitter();
+            broadcaster.subscribe(late);
+            assertThat(late.events).hasSize(1);
+        } finally {
+            release.countDown();
+            broadcaster.shutdown();
+        }
+    }
+
+    private PopularityBroadcaster broadcaster(PopularityLeaderboard leaderboard, int size) {
+        return new PopularityBroadcaster(leaderboard, new ObjectMapper(), new SimpleMeterRegistry(), size,
+                Duration.ofMinutes(1), Duration.ofMillis(200));
+    }
+
+    private PopularityLeaderboard leaderboardWith(Map<Integer, Long> likesCounts) {
+        FilmRepository filmRepository = mock(FilmRepository.class);
+        when(filmRepository.findLikesCounts()).thenReturn(likesCounts);
+
+        PopularityLeaderboard leaderboard = new PopularityLeaderboard(filmRepository);
+        leaderboard.reload();
+        return leaderboard;
+    }
+
+    // Вместо записи в ответ склеивает части каждого события в строку; с stall запись событий
+    // после снимка зависает, пока его не откроют
+    private static final class CapturingEmitter extends SseEmitter {
+        private final List<String> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch stall;
+
+        CapturingEmitter() {
+            this(new CountDownLatch(0));
+        }
+
+        CapturingEmitter(CountDownLatch stall) {
+            this.stall = stall;
+        }
+
+        @Override
+        public void send(Set<DataWithMediaType> items) throws IOException {
+            if (!events.isEmpty()) {
+                try {
+                    stall.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            events.add(items.stream().map(item -> item.getData().toString()).collect(Collectors.joining()));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.config.ConcurrentCalls;
+import ru.yandex.practicum.filmorate.dal.UserRepository;
+import ru.yandex.practicum.filmorate.index.ExistingIds;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.index.FriendRecommender;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserServiceTest {
+    private static final int CALLERS = 8;
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final FriendGraph friendGraph = new FriendGraph(userRepository);
+    private final ExistingIds existingIds = mock(ExistingIds.class);
+    private final UserService userService = new UserService(userRepository, mock(PageLimits.class), friendGraph,
+            mock(FriendRecommender.class), mock(FilmService.class), mock(BatchLimits.class), mock(Validator.class),
+            existingIds, mock(FeedService.class));
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void release() {
+        release.countDown();
+    }
+
+    @Test
+    void shouldLoadFriendsOnceForConcurrentReaders() throws Exception {
+        friendGraph.addFriend(1, 2);
+        friendGraph.addFriend(1, 3);
+        when(existingIds.userExists(1)).thenReturn(true);
+        when(userRepository.findByIds(any(int[].class))).thenAnswer(invocation -> {
+            release.await();
+            return List.of(user(2), user(3));
+        });
+
+        List<Set<User>> results = ConcurrentCalls.run(CALLERS, release, () -> userService.getFriendsToUser(1));
+
+        verify(userRepository, times(1)).findByIds(new int[]{2, 3});
+        assertThat(results).allSatisfy(friends -> assertThat(friends).containsExactlyInAnyOrder(user(2), user(3)));
+    }
+
+    private static User user(int id) {
+        User user = new User();
+        user.setId(id);
+        user.setLogin("user" + id);
+        return user;
+    }
+}